@@ -0,0 +1,54 @@
+package com.celfocus.hiring.kickstarter;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic catalogs and carts shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    private static final String[] CATEGORIES = {"men's clothing", "women's clothing", "jewelery", "electronics"};
+
+    private BenchmarkData() {
+    }
+
+    public static String sku(int index) {
+        return "SKU" + index;
+    }
+
+    public static List<ProductEntity> products(int size) {
+        var products = new ArrayList<ProductEntity>(size);
+        for (int i = 0; i < size; i++) {
+            var product = new ProductEntity();
+            product.setSku(sku(i));
+            product.setName("Product " + i);
+            product.setDescription("Description of product " + i + ", long enough to look like a real catalog entry.");
+            product.setPrice(BigDecimal.valueOf(1_000 + i % 100_000, 2));
+            product.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            product.setimageUrl("https://example.com/images/" + i + ".jpg");
+            products.add(product);
+        }
+        return products;
+    }
+
+    public static Cart<CartItem> cart(int lines) {
+        var items = new ArrayList<CartItem>(lines);
+        for (int i = 0; i < lines; i++) {
+            var item = new CartItem();
+            item.setItemId(sku(i));
+            item.setPrice(BigDecimal.valueOf(1_000 + i, 2));
+            item.setQuantity(1 + i % 5);
+            items.add(item);
+        }
+        var cart = new Cart<CartItem>();
+        cart.setUserId("benchmark-user");
+        cart.setItems(items);
+        return cart;
+    }
+}
@@ -0,0 +1,56 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.BenchmarkData;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a cart into the GET /api/v1/carts payload: catalog enrichment, then Jackson serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartResponseBenchmark {
+
+    @Param({"1", "10", "50", "200"})
+    private int cartSize;
+
+    private CartAPIController controller;
+    private ObjectMapper objectMapper;
+    private Cart<CartItem> cart;
+    private CartResponse response;
+
+    @Setup
+    public void setUp() {
+        var productService = new ProductService(ProductRepository.create(BenchmarkData.products(10_000)));
+        controller = new CartAPIController(null, productService);
+        objectMapper = new ObjectMapper();
+        cart = BenchmarkData.cart(cartSize);
+        response = controller.mapToCartResponse(cart);
+    }
+
+    @Benchmark
+    public CartResponse mapToCartResponse() {
+        return controller.mapToCartResponse(cart);
+    }
+
+    @Benchmark
+    public byte[] serializeCartResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(controller.mapToCartResponse(cart));
+    }
+}
@@ -0,0 +1,90 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.KickstarterApplication;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CartService} with the full Spring/Hibernate stack in place, storing carts in an in-memory H2 database or in
+ * the journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+
+    /**
+     * Number of distinct lines in the benchmarked cart, bounded by the 20 SKUs of products.json.
+     */
+    @Param({"1", "10", "20"})
+    private int cartSize;
+
+    /**
+     * The {@code cart.store} engine.
+     */
+    @Param({"jpa", "journal"})
+    private String store;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private CartCache cartCache;
+    private Inventory inventory;
+    private CartItemInput hotItem;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(KickstarterApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN")
+                // arguments, as application.properties overrides the defaults set above
+                .run("--cart.store=" + store, "--cart.journal.directory=" + Files.createTempDirectory("benchmark-journal"));
+        cartService = context.getBean(CartService.class);
+        cartCache = context.getBean(CartCache.class);
+        inventory = context.getBean(Inventory.class);
+        for (int i = 1; i <= cartSize; i++) {
+            cartService.addItemToCart(USERNAME, new CartItemInput("SKUTEST" + i));
+        }
+        hotItem = new CartItemInput("SKUTEST1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addItemToCart() {
+        cartService.addItemToCart(USERNAME, hotItem);
+        // hand the unit back to stock, or the hot item runs out; the line keeps growing
+        inventory.release(hotItem.itemId(), 1);
+    }
+
+    @Benchmark
+    public Cart<? extends CartItem> getCartCached() {
+        return cartService.getCart(USERNAME);
+    }
+
+    @Benchmark
+    public Cart<? extends CartItem> getCartUncached() {
+        cartCache.invalidate(USERNAME);
+        return cartService.getCart(USERNAME);
+    }
+}
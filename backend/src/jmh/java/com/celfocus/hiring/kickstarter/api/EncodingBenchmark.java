@@ -0,0 +1,79 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.BenchmarkData;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.ProductPageResponse;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of each encoding the API negotiates, both ways, for a cart and for a catalog page of the same number of
+ * lines. Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String encoding;
+
+    @Param({"1", "10", "50", "200"})
+    private int lines;
+
+    private ObjectMapper mapper;
+    private CartResponse cart;
+    private ProductPageResponse page;
+    private byte[] encodedCart;
+    private byte[] encodedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (encoding) {
+            case "json" -> new ObjectMapper();
+            case "smile" -> new SmileMapper();
+            case "cbor" -> new CBORMapper();
+            default -> throw new IllegalArgumentException(encoding);
+        };
+        var productService = new ProductService(ProductRepository.create(BenchmarkData.products(10_000)));
+        cart = new CartAPIController(null, productService).mapToCartResponse(BenchmarkData.cart(lines));
+        // with the fields named the controller serializes the page itself, so it needs no RenderedCatalogCache
+        var fields = List.of("name", "description", "price", "category", "imageUrl");
+        page = (ProductPageResponse) new ProductAPIController(productService, null)
+                .getProducts(null, null, lines, fields, null, null, null).getBody();
+        encodedCart = mapper.writeValueAsBytes(cart);
+        encodedPage = mapper.writeValueAsBytes(page);
+        System.out.printf("%n%s, %d lines: cart %d bytes, catalog page %d bytes%n",
+                encoding, lines, encodedCart.length, encodedPage.length);
+    }
+
+    @Benchmark
+    public byte[] writeCart() throws IOException {
+        return mapper.writeValueAsBytes(cart);
+    }
+
+    @Benchmark
+    public CartResponse readCart() throws IOException {
+        return mapper.readValue(encodedCart, CartResponse.class);
+    }
+
+    @Benchmark
+    public byte[] writeProductPage() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public ProductPageResponse readProductPage() throws IOException {
+        return mapper.readValue(encodedPage, ProductPageResponse.class);
+    }
+}
@@ -0,0 +1,77 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.BenchmarkData;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of a GET /api/v1/products body, serialized by Jackson (and gzipped per response, as response compression would)
+ * against copied out of the {@link RenderedCatalog}. At the default page size the rendered gzip is a whole page kept
+ * from the render; at other sizes it is chained from the products' deflated forms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductPageBenchmark {
+
+    // naming the fields sends the request through Jackson even once the catalog is rendered
+    private static final List<String> ALL_FIELDS = List.of("name", "description", "price", "category", "imageUrl");
+
+    @Param({"10", "50", "200"})
+    private int pageSize;
+
+    private ProductAPIController controller;
+    private RenderedCatalog rendered;
+    private ObjectMapper objectMapper;
+    private String afterSku;
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        var productService = new ProductService(ProductRepository.create(BenchmarkData.products(10_000)));
+        var cache = new RenderedCatalogCache(productService, objectMapper, new SimpleMeterRegistry());
+        controller = new ProductAPIController(productService, cache);
+        rendered = RenderedCatalog.render(productService.getCatalog(), objectMapper);
+        // page 100 of a walk at the default page size
+        for (int page = 0; page < 100; page++) {
+            afterSku = rendered.catalog().findPage(null, afterSku, RenderedCatalog.PAGE_SIZE).lastSku();
+        }
+        cursor = ProductAPIController.encodeCursor(afterSku);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(controller.getProducts(null, cursor, pageSize, ALL_FIELDS, null, null, null).getBody());
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzip() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, controller.getProducts(null, cursor, pageSize, ALL_FIELDS, null, null, null).getBody());
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] rendered() {
+        return rendered.page(null, afterSku, pageSize, false).bytes();
+    }
+
+    @Benchmark
+    public byte[] renderedGzip() {
+        return rendered.page(null, afterSku, pageSize, true).bytes();
+    }
+}
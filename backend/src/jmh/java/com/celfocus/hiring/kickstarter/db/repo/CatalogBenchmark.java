@@ -0,0 +1,77 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.BenchmarkData;
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int catalogSize;
+
+    private ProductRepository productRepository;
+    private String[] lookups;
+    private String[] typeaheads;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        productRepository = ProductRepository.create(BenchmarkData.products(catalogSize));
+        var random = new Random(42);
+        lookups = new String[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = BenchmarkData.sku(random.nextInt(catalogSize));
+        }
+        typeaheads = new String[1024];
+        for (int i = 0; i < typeaheads.length; i++) {
+            var number = Integer.toString(random.nextInt(catalogSize));
+            typeaheads[i] = number.substring(0, 1 + random.nextInt(number.length()));
+        }
+    }
+
+    @Benchmark
+    public Optional<ProductEntity> findBySku() {
+        return productRepository.findBySku(lookups[next++ & (lookups.length - 1)]);
+    }
+
+    @Benchmark
+    public Optional<ProductEntity> findBySkuMissing() {
+        return productRepository.findBySku("UNKNOWN");
+    }
+
+    @Benchmark
+    public List<ProductEntity> findAll() {
+        return productRepository.findAll();
+    }
+
+    @Benchmark
+    public List<ProductEntity> findByCategory() {
+        return productRepository.findByCategory("jewelery");
+    }
+
+    @Benchmark
+    public List<ProductEntity> searchTypeahead() {
+        return productRepository.search(typeaheads[next++ & (typeaheads.length - 1)], 10);
+    }
+
+    @Benchmark
+    public List<ProductEntity> searchCommonPrefix() {
+        return productRepository.search("prod", 10);
+    }
+
+    @Benchmark
+    public List<ProductEntity> searchWords() {
+        return productRepository.search("jewelery product " + lookups[next++ & (lookups.length - 1)].substring(3) + " ", 10);
+    }
+}
@@ -0,0 +1,34 @@
+package com.celfocus.hiring.kickstarter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary encodings of the API's JSON, for internal clients that ask for them with {@code Accept} (and send them with
+ * {@code Content-Type}): Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}). Both carry
+ * the same fields as the JSON, so the DTOs need nothing extra.
+ * <p>
+ * Spring MVC ranks these after JSON, so a request without {@code Accept}, or with {@code *}{@code /*}, still gets
+ * JSON. The mappers come from Boot's builder, so {@code spring.jackson.*} settings apply to every encoding alike.
+ * {@code ReactiveCodecsConfiguration}, built with the {@code reactive} Maven profile, registers the same encodings
+ * with WebFlux.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BinaryCodecsConfiguration {
+
+    // replaces Spring MVC's default Smile converter, in its place after JSON
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,83 @@
+package com.celfocus.hiring.kickstarter;
+
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogHolder;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code warmup} health component, part of the readiness group: out of service until the product catalog is
+ * indexed and stock levels are recovered, which may both finish after the application has started.
+ * <p>
+ * Once they have, the JVM's uptime is published as {@code application.warmup.time}: unlike Boot's
+ * {@code application.ready.time}, it counts JVM startup and the work done after the context is refreshed, which is
+ * what a new instance takes before it can take traffic.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmupHealthIndicator.class);
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private final ProductCatalogHolder catalogHolder;
+    private final Inventory inventory;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public WarmupHealthIndicator(ProductCatalogHolder catalogHolder, Inventory inventory, MeterRegistry meterRegistry) {
+        this.catalogHolder = catalogHolder;
+        this.inventory = inventory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Health health() {
+        boolean catalogLoaded = catalogHolder.isLoaded();
+        boolean stockRecovered = inventory.isRecovered();
+        return (catalogLoaded && stockRecovered ? Health.up() : Health.outOfService())
+                .withDetail("catalog", catalogLoaded ? "indexed" : "loading")
+                .withDetail("stock", stockRecovered ? "recovered" : "recovering")
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void measureWarmup() {
+        Thread.ofPlatform().daemon().name("warmup").start(() -> {
+            boolean warned = false;
+            while (true) {
+                try {
+                    catalogHolder.current();
+                    inventory.awaitRecovery();
+                    break;
+                } catch (IllegalStateException e) {
+                    if (!warned) {
+                        LOGGER.warn("Not warmed up yet, see the failure logged above; checking again every {}", RETRY_INTERVAL);
+                        warned = true;
+                    }
+                }
+                try {
+                    Thread.sleep(RETRY_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            long warmupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            TimeGauge.builder("application.warmup.time", () -> warmupMillis, TimeUnit.MILLISECONDS)
+                    .description("Time from JVM start until the catalog was indexed and stock recovered")
+                    .register(meterRegistry);
+            LOGGER.info("Warmed up {} ms after JVM start", warmupMillis);
+        });
+    }
+}
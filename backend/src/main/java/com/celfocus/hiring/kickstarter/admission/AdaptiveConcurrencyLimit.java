@@ -0,0 +1,103 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on concurrent requests that follows their latency, in the manner of a gradient limiter.
+ * <p>
+ * Each completed request updates two moving averages of latency: a short one, of the last few requests, and a long
+ * one, the baseline. While the short average stays within {@code tolerance} times the baseline, the limit grows by
+ * about its square root; past that, requests are queueing for the database rather than using it, and the limit is
+ * scaled down by the ratio, by at most half. Growth only happens while at least half the limit is in use, so a quiet
+ * period does not inflate it. Requests over the limit are refused at once instead of joining the queue.
+ * <p>
+ * Admission is a compare-and-set on the in-flight count. Updates take turns without blocking: a completion that finds
+ * another one updating skips its sample.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private volatile double limit;
+    // only touched while holding updating
+    private double shortLatency;
+    private double longLatency;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, and tolerance >= 1");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Takes a place under the limit; one taken must be given back with {@link #release(long)}.
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Gives back a place, with the latency of the request that held it.
+     */
+    void release(long latencyNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (!updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            update(latencyNanos, inFlightBefore);
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void update(long latencyNanos, int inFlightBefore) {
+        if (longLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) / SHORT_WINDOW;
+        longLatency += (latencyNanos - longLatency) / LONG_WINDOW;
+        // once a spell of high latency is over, let the baseline come back down with it
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        if (gradient == 1.0 && inFlightBefore < current / 2) {
+            return;
+        }
+        double next = current * gradient + (gradient == 1.0 ? Math.sqrt(current) : 0);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + next * SMOOTHING));
+    }
+}
@@ -0,0 +1,27 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts {@link AdmissionControl} in front of the cart mutations of Spring MVC; {@code ReactiveAdmissionConfiguration},
+ * built with the {@code reactive} Maven profile, does the same for WebFlux.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "admission.enabled", matchIfMissing = true)
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionConfiguration(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl))
+                .addPathPatterns(AdmissionControl.CARTS_PATH, AdmissionControl.CARTS_PATH + "/**");
+    }
+}
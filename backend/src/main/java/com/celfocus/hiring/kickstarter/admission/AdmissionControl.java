@@ -0,0 +1,103 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for cart mutations, the {@code POST} and {@code DELETE} requests under {@code /api/v1/carts}.
+ * <p>
+ * A mutation first takes a token from its username's bucket, refilled at {@code admission.user.rate-per-second} up to
+ * {@code admission.user.burst}; a user out of tokens gets {@code 429 Too Many Requests}. It then needs a place under
+ * an {@link AdaptiveConcurrencyLimit} that follows the latency of mutations; when there is none, it gets
+ * {@code 503 Service Unavailable}. Either way the answer is immediate, comes with {@code Retry-After}, and never
+ * reaches the cart service or the database. Reads are not limited.
+ */
+@Component
+@ConditionalOnProperty(name = "admission.enabled", matchIfMissing = true)
+public class AdmissionControl {
+
+    static final String CARTS_PATH = "/api/v1/carts";
+
+    private static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+
+    private final UserRateLimiter userRateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Counter shedForUserRate;
+    private final Counter shedForConcurrency;
+
+    @Autowired
+    public AdmissionControl(MeterRegistry meterRegistry,
+                            @Value("${admission.user.rate-per-second:20}") double userRatePerSecond,
+                            @Value("${admission.user.burst:40}") int userBurst,
+                            @Value("${admission.user.slots:65536}") int userSlots,
+                            @Value("${admission.concurrency.initial-limit:32}") int initialLimit,
+                            @Value("${admission.concurrency.min-limit:8}") int minLimit,
+                            @Value("${admission.concurrency.max-limit:128}") int maxLimit,
+                            @Value("${admission.concurrency.tolerance:2.0}") double tolerance) {
+        this.userRateLimiter = new UserRateLimiter(userRatePerSecond, userBurst, userSlots);
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance);
+        this.shedForUserRate = shedCounter(meterRegistry, "user-rate");
+        this.shedForConcurrency = shedCounter(meterRegistry, "concurrency");
+        Gauge.builder("admission.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Cart mutations allowed to run at once")
+                .register(meterRegistry);
+        Gauge.builder("admission.concurrency.in_flight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Cart mutations running")
+                .register(meterRegistry);
+    }
+
+    static boolean isCartMutation(String method, String path) {
+        return (HttpMethod.POST.matches(method) || HttpMethod.DELETE.matches(method))
+                && (path.equals(CARTS_PATH) || path.startsWith(CARTS_PATH + "/"));
+    }
+
+    /**
+     * Admits a cart mutation by {@code username}, which must then be {@link #release(long) released}.
+     *
+     * @param username the {@code username} header, {@code null} when missing (the request is then left to fail
+     *                 validation, and only counts against the concurrency limit)
+     * @return {@code null} when admitted, otherwise how to answer the request instead
+     */
+    Shed admit(String username) {
+        if (username != null) {
+            long wait = userRateLimiter.tryAcquire(username);
+            if (wait > 0) {
+                shedForUserRate.increment();
+                return new Shed(HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999)));
+            }
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            shedForConcurrency.increment();
+            return new Shed(HttpStatus.SERVICE_UNAVAILABLE, OVERLOAD_RETRY_AFTER_SECONDS);
+        }
+        return null;
+    }
+
+    /**
+     * Ends an admitted mutation, whatever its outcome.
+     *
+     * @param admittedAtNanos {@link System#nanoTime()} when it was admitted
+     */
+    void release(long admittedAtNanos) {
+        concurrencyLimit.release(System.nanoTime() - admittedAtNanos);
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("admission.shed")
+                .description("Cart mutations refused before reaching the cart service")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    record Shed(HttpStatus status, long retryAfterSeconds) {
+    }
+}
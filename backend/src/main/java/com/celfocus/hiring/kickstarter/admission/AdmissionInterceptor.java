@@ -0,0 +1,43 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies {@link AdmissionControl} to the servlet stack's cart mutations.
+ */
+class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String ADMITTED_AT = AdmissionInterceptor.class.getName() + ".admittedAt";
+
+    private final AdmissionControl admissionControl;
+
+    AdmissionInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!AdmissionControl.isCartMutation(request.getMethod(), request.getRequestURI())) {
+            return true;
+        }
+        var shed = admissionControl.admit(request.getHeader("username"));
+        if (shed != null) {
+            response.setStatus(shed.status().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(shed.retryAfterSeconds()));
+            return false;
+        }
+        request.setAttribute(ADMITTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED_AT) instanceof Long admittedAt) {
+            request.removeAttribute(ADMITTED_AT);
+            admissionControl.release(admittedAt);
+        }
+    }
+}
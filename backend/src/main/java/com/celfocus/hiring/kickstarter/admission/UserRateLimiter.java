@@ -0,0 +1,64 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-username token buckets in a fixed amount of memory, without locks.
+ * <p>
+ * A bucket is kept as one {@code long}, the time it will be full again (the generic cell rate algorithm), so checking
+ * for a token and taking it is a single compare-and-set: however many requests race, a bucket never admits more than
+ * its burst. Usernames hash to one of {@code slots} buckets, so memory stays at {@code slots} longs however many
+ * usernames turn up; users that share a slot share its bucket, which with the default of 65536 slots makes a
+ * well-behaved user throttled by a given bot about once in 65536.
+ */
+final class UserRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int mask;
+    private final AtomicLongArray fullAt;
+    // keeps times positive, so a slot never used reads as a full bucket
+    private final long origin = System.nanoTime();
+
+    UserRateLimiter(double ratePerSecond, int burst, int slots) {
+        if (ratePerSecond <= 0 || burst < 1 || slots < 1) {
+            throw new IllegalArgumentException("Rate, burst and slots must be positive");
+        }
+        this.emissionIntervalNanos = Math.round(1e9 / ratePerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        // a power of two, so a slot is a mask of the hash
+        int size = slots == 1 ? 1 : Integer.highestOneBit(slots - 1) << 1;
+        this.mask = size - 1;
+        this.fullAt = new AtomicLongArray(size);
+    }
+
+    /**
+     * Takes a token from {@code username}'s bucket.
+     *
+     * @return {@code 0} when a token was taken, otherwise the nanoseconds until the bucket holds one again
+     */
+    long tryAcquire(String username) {
+        int slot = (int) mix(username.hashCode()) & mask;
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long full = fullAt.get(slot);
+            long from = Math.max(full, now);
+            long wait = from - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(slot, full, from + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // the 64-bit finalizer of MurmurHash3, so the slot depends on every bit of the string's hash
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
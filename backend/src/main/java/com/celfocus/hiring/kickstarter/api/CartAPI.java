@@ -1,9 +1,12 @@
 package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartSummaryResponse;
 import jakarta.validation.Valid;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -11,14 +14,25 @@ import org.springframework.web.bind.annotation.*;
 @Validated
 public interface CartAPI {
     @PostMapping("/items")
-    ResponseEntity<Void> addItemToCart(@RequestHeader("username") String username, @Valid @RequestBody CartItemInput itemInput);
+    ResponseEntity<Void> addItemToCart(@RequestHeader("username") String username, @Valid @RequestBody CartItemInput itemInput,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+
+    @PostMapping("/items/batch")
+    ResponseEntity<Void> addItemsToCart(@RequestHeader("username") String username, @Valid @RequestBody CartItemsInput itemsInput,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
     @DeleteMapping
-    ResponseEntity<Void> clearCart(@RequestHeader("username") String username);
+    ResponseEntity<Void> clearCart(@RequestHeader("username") String username,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
     @GetMapping
-    ResponseEntity<CartResponse> getCart(@RequestHeader("username") String username);
+    ResponseEntity<CartResponse> getCart(@RequestHeader("username") String username,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+    @GetMapping("/summary")
+    ResponseEntity<CartSummaryResponse> getCartSummary(@RequestHeader("username") String username);
 
     @DeleteMapping("/items/{itemId}")
-    ResponseEntity<Void> removeItemFromCart(@RequestHeader("username") String username, @PathVariable("itemId") String itemId);
+    ResponseEntity<Void> removeItemFromCart(@RequestHeader("username") String username, @PathVariable("itemId") String itemId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 }
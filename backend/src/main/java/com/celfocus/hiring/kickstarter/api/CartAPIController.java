@@ -2,18 +2,38 @@ package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartSummaryResponse;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Shopping cart endpoints. Every mutation moves the cart to a new version, which is its {@code ETag}: a {@code GET}
+ * with a matching {@code If-None-Match} is answered from the cart row alone, and mutations sent with
+ * {@code If-Match} only apply while the cart is still at that version, answering {@code 412} otherwise.
+ * <p>
+ * The default, servlet stack; {@link ReactiveCartAPIController} replaces it under the {@code reactive} profile.
+ */
 @RestController
+@Profile("!reactive")
 @RequestMapping(CartAPIController.CARTS_PATH)
 public class CartAPIController implements CartAPI {
 
@@ -34,35 +54,124 @@ public class CartAPIController implements CartAPI {
     }
 
     @Override
-    public ResponseEntity<Void> addItemToCart(String username, CartItemInput itemInput) {
-        cartService.addItemToCart(username, itemInput);
-        return ResponseEntity.status(201).build();
+    public ResponseEntity<Void> addItemToCart(String username, CartItemInput itemInput, String ifMatch) {
+        var version = cartService.addItemToCart(username, itemInput, expectedVersion(username, ifMatch));
+        return ResponseEntity.status(201).eTag(etag(version)).build();
     }
 
     @Override
-    public ResponseEntity<Void> clearCart(String username) {
-        cartService.clearCart(username);
+    public ResponseEntity<Void> addItemsToCart(String username, CartItemsInput itemsInput, String ifMatch) {
+        var version = cartService.addItemsToCart(username, itemsInput, expectedVersion(username, ifMatch));
+        return ResponseEntity.status(201).eTag(etag(version)).build();
+    }
+
+    @Override
+    public ResponseEntity<Void> clearCart(String username, String ifMatch) {
+        cartService.clearCart(username, expectedVersion(username, ifMatch));
         return ResponseEntity.status(204).build();
     }
 
     @Override
-    public ResponseEntity<CartResponse> getCart(String username) {
+    public ResponseEntity<CartResponse> getCart(String username, String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            var current = cartService.getCartVersion(username);
+            if (current.isPresent() && ETags.matchesAny(ifNoneMatch, etag(current.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(current.get())).varyBy(HttpHeaders.ACCEPT).build();
+            }
+        }
         var cart = cartService.getCart(username);
-        return ResponseEntity.ok(mapToCartResponse(cart));
+        return ResponseEntity.ok().eTag(etag(cart.getCartVersion())).varyBy(HttpHeaders.ACCEPT).body(mapToCartResponse(cart));
     }
 
     @Override
-    public ResponseEntity<Void> removeItemFromCart(String username, String itemId) {
-        cartService.removeItemFromCart(username, itemId);
-        return ResponseEntity.status(204).build();
+    public ResponseEntity<CartSummaryResponse> getCartSummary(String username) {
+        var summary = cartService.getCartSummary(username);
+        return ResponseEntity.ok(new CartSummaryResponse(summary.itemCount(), MinorUnits.toDecimal(summary.subtotalMinorUnits())));
+    }
+
+    @Override
+    public ResponseEntity<Void> removeItemFromCart(String username, String itemId, String ifMatch) {
+        var version = cartService.removeItemFromCart(username, itemId, expectedVersion(username, ifMatch));
+        var response = ResponseEntity.status(204);
+        version.ifPresent(v -> response.eTag(etag(v)));
+        return response.build();
+    }
+
+    static String etag(CartVersion version) {
+        return "\"" + Long.toString(version.cartId(), 36) + "." + Long.toString(version.version(), 36) + "\"";
+    }
+
+    /**
+     * The version an {@code If-Match} asks for: {@code null} when absent or {@code *} on an existing cart, so the
+     * mutation applies unconditionally. Weak or unparseable tags can never match. When several tags are listed, the
+     * mutation is conditioned on the one the cart is at now, if any.
+     */
+    private CartVersion expectedVersion(String username, String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        if (ifMatch.trim().equals("*")) {
+            if (cartService.getCartVersion(username).isEmpty()) {
+                throw new StaleCartException(username);
+            }
+            return null;
+        }
+        var versions = parseETags(ifMatch);
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        return cartService.getCartVersion(username).filter(versions::contains)
+                .orElseThrow(() -> new StaleCartException(username));
+    }
+
+    /**
+     * The versions the strong cart tags of an {@code If-Match} list stand for, skipping any other tag.
+     */
+    static List<CartVersion> parseETags(String ifMatch) {
+        var versions = new ArrayList<CartVersion>();
+        // cart tags are base-36 digits and a dot, so no listed tag contains a comma
+        for (String tag : ifMatch.split(",")) {
+            parseETag(tag).ifPresent(versions::add);
+        }
+        return versions;
+    }
+
+    /**
+     * The version a strong cart {@code ETag} stands for, empty when it is not one.
+     */
+    static Optional<CartVersion> parseETag(String etag) {
+        var tag = etag.trim();
+        int dot = tag.indexOf('.');
+        if (tag.length() < 5 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"' || dot < 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new CartVersion(Long.parseLong(tag, 1, dot, 36), Long.parseLong(tag, dot + 1, tag.length() - 1, 36)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    CartResponse mapToCartResponse(Cart<? extends CartItem> cart) {
+        return mapToCartResponse(cart, productService);
     }
 
-    private CartResponse mapToCartResponse(Cart<? extends CartItem> cart) {
-        return new CartResponse(cart.getItems().stream().map(this::mapToCartItemResponse).collect(Collectors.toList()));
+    static CartResponse mapToCartResponse(Cart<? extends CartItem> cart, ProductService productService) {
+        var items = cart.getItems();
+        var skus = new HashSet<String>(Math.max(16, (int) (items.size() / 0.75f) + 1));
+        for (CartItem item : items) {
+            skus.add(item.getItemId());
+        }
+        var products = productService.getProducts(skus);
+        var responses = new ArrayList<CartItemResponse>(items.size());
+        for (CartItem item : items) {
+            responses.add(mapToCartItemResponse(item, products.get(item.getItemId())));
+        }
+        return new CartResponse(responses);
     }
 
-    private CartItemResponse mapToCartItemResponse(CartItem item) {
-        var product = productService.getProduct(item.getItemId());
-        return new CartItemResponse(item.getItemId(), item.getQuantity(), product.orElseThrow().getPrice(), product.orElseThrow().getName());
+    private static CartItemResponse mapToCartItemResponse(CartItem item, Product product) {
+        var found = Optional.ofNullable(product).orElseThrow();
+        return new CartItemResponse(item.getItemId(), item.getQuantity(), found.getPrice(), found.getName());
     }
 }
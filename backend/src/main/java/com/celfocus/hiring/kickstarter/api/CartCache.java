@@ -0,0 +1,87 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of carts keyed by username.
+ * <p>
+ * A miss publishes a pending future for the user and then loads on the calling thread, outside any cache lock, so
+ * a virtual thread is never pinned while it waits on the database. Concurrent readers of the same user wait on
+ * that future. An invalidation issued after a commit removes the pending future too, so a load that raced the
+ * commit is discarded instead of outliving the mutation that changed the cart.
+ */
+@Component
+public class CartCache {
+
+    static final String CACHE_NAME = "carts";
+
+    private final AsyncCache<String, Cart<? extends CartItem>> carts;
+
+    @Autowired
+    public CartCache(MeterRegistry meterRegistry,
+                     @Value("${cart.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${cart.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, CACHE_NAME);
+    }
+
+    public Cart<? extends CartItem> get(String username, Function<String, Cart<? extends CartItem>> loader) {
+        var cached = carts.getIfPresent(username);
+        if (cached == null) {
+            var loading = new CompletableFuture<Cart<? extends CartItem>>();
+            cached = carts.asMap().putIfAbsent(username, loading);
+            if (cached == null) {
+                return load(username, loader, loading);
+            }
+        }
+        var cart = cached.join();
+        // a null cart means the load we waited for failed, let this caller see the error for itself
+        return cart != null ? cart : loader.apply(username);
+    }
+
+    private Cart<? extends CartItem> load(String username, Function<String, Cart<? extends CartItem>> loader,
+                                          CompletableFuture<Cart<? extends CartItem>> loading) {
+        Cart<? extends CartItem> cart = null;
+        try {
+            cart = loader.apply(username);
+            return cart;
+        } finally {
+            // completing with null drops the entry, e.g. when the cart does not exist
+            loading.complete(cart);
+        }
+    }
+
+    /**
+     * Drops the user's cart once the current transaction completes, or immediately when there is none.
+     */
+    public void invalidate(String username) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    carts.synchronous().invalidate(username);
+                }
+            });
+        } else {
+            carts.synchronous().invalidate(username);
+        }
+    }
+}
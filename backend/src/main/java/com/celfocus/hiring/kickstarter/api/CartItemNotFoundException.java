@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class CartItemNotFoundException extends RuntimeException {
+
+    public CartItemNotFoundException(String sku) {
+        super("Cart Item not found: " + sku);
+    }
+}
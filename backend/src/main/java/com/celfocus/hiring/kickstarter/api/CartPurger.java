@@ -0,0 +1,193 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes carts that have not changed for {@code cart.expiry.ttl}, handing their units back to the {@link Inventory}.
+ * <p>
+ * Every {@code cart.expiry.purge-interval}, expired carts are deleted in batches of {@code cart.expiry.batch-size},
+ * least recently changed first, with a {@code cart.expiry.batch-pause} between batches and at most
+ * {@code cart.expiry.max-batches-per-run} per run, so a large backlog is worked off over several runs instead of holding
+ * locks or the store's writers for long. A cart is only deleted at the version it was found at: a batch with a cart
+ * that changed in the meantime is retried one cart at a time, and the changed carts are kept.
+ */
+@Component
+public class CartPurger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CartPurger.class);
+
+    private final CartStore cartStore;
+    private final CartCache cartCache;
+    private final Inventory inventory;
+    private final Duration ttl;
+    private final Duration purgeInterval;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatchesPerRun;
+
+    private final Counter purgedCarts;
+    private final Counter purgedLines;
+    private final Counter conflicts;
+    private final Timer batchTimer;
+
+    private ScheduledExecutorService purgeExecutor;
+
+    @Autowired
+    public CartPurger(CartStore cartStore,
+                      CartCache cartCache,
+                      Inventory inventory,
+                      MeterRegistry meterRegistry,
+                      @Value("${cart.expiry.ttl:30d}") Duration ttl,
+                      @Value("${cart.expiry.purge-interval:10m}") Duration purgeInterval,
+                      @Value("${cart.expiry.batch-size:200}") int batchSize,
+                      @Value("${cart.expiry.batch-pause:50ms}") Duration batchPause,
+                      @Value("${cart.expiry.max-batches-per-run:100}") int maxBatchesPerRun) {
+        if (batchSize <= 0 || maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException("cart.expiry.batch-size and cart.expiry.max-batches-per-run must be positive");
+        }
+        this.cartStore = cartStore;
+        this.cartCache = cartCache;
+        this.inventory = inventory;
+        this.ttl = ttl;
+        this.purgeInterval = purgeInterval;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.purgedCarts = Counter.builder("cart.expiry.purged")
+                .description("Expired carts deleted")
+                .register(meterRegistry);
+        this.purgedLines = Counter.builder("cart.expiry.purged.lines")
+                .description("Lines of expired carts deleted, their units released to stock")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("cart.expiry.conflicts")
+                .description("Expired carts kept because they changed while being purged")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.expiry.batch")
+                .description("Time to find and delete one batch of expired carts")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        purgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "cart-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = purgeInterval.toMillis();
+        purgeExecutor.scheduleWithFixedDelay(this::purgeQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        purgeExecutor.shutdownNow();
+    }
+
+    /**
+     * Deletes carts that have not changed for the TTL, up to the per-run batch limit.
+     *
+     * @return the number of carts deleted
+     */
+    public int purge() {
+        return purge(Instant.now().minus(ttl));
+    }
+
+    int purge(Instant cutoff) {
+        int purged = 0;
+        int batches = 0;
+        // a batch never spans shards, since only a shard can delete it all or none
+        for (CartStore shard : cartStore.shards()) {
+            while (batches < maxBatchesPerRun) {
+                if (batches > 0 && !pause()) {
+                    return purged;
+                }
+                var expired = shard.findExpired(cutoff, batchSize);
+                if (expired.isEmpty()) {
+                    break;
+                }
+                batches++;
+                purged += batchTimer.record(() -> purgeBatch(shard, expired));
+                if (expired.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+        return purged;
+    }
+
+    private int purgeBatch(CartStore shard, List<ExpiredCartView> expired) {
+        try {
+            release(shard.deleteCarts(expired));
+            expired.forEach(cart -> cartCache.invalidate(cart.userId()));
+            purgedCarts.increment(expired.size());
+            return expired.size();
+        } catch (StaleCartException e) {
+            // some cart was used again since it was found; nothing was deleted, so go through them one by one
+            return purgeOneByOne(shard, expired);
+        }
+    }
+
+    private int purgeOneByOne(CartStore shard, List<ExpiredCartView> expired) {
+        int purged = 0;
+        for (ExpiredCartView cart : expired) {
+            try {
+                release(shard.clearCart(cart.userId(), new CartVersion(cart.cartId(), cart.cartVersion())));
+                purged++;
+            } catch (StaleCartException e) {
+                conflicts.increment();
+            } finally {
+                cartCache.invalidate(cart.userId());
+            }
+        }
+        purgedCarts.increment(purged);
+        return purged;
+    }
+
+    private void release(List<CartLineView> lines) {
+        lines.forEach(line -> inventory.release(line.itemId(), line.quantity()));
+        purgedLines.increment(lines.size());
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = purge();
+            if (purged > 0) {
+                LOGGER.info("Purged {} expired carts", purged);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cart purge failed, will retry", e);
+        }
+    }
+}
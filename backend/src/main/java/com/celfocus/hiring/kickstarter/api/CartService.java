@@ -1,85 +1,203 @@
 package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
-import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemPK;
-import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
-import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemQuantityInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
 import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cart operations over the configured {@link CartStore}, each store call being one atomic unit. Stock is reserved
+ * before a mutation and handed back if it fails, released once a removal has been stored, and the user's cached cart
+ * is dropped after every mutation, whatever its outcome.
+ */
 @Service
-@Transactional
+@Timed(value = "cart.service", histogram = true)
 public class CartService {
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
+
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
+    private final CartCache cartCache;
+    private final Inventory inventory;
 
     @Autowired
-    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, ProductRepository productRepository) {
-        this.cartRepository = cartRepository;
-        this.cartItemRepository = cartItemRepository;
+    public CartService(CartStore cartStore, ProductRepository productRepository, CartCache cartCache, Inventory inventory) {
+        this.cartStore = cartStore;
         this.productRepository = productRepository;
+        this.cartCache = cartCache;
+        this.inventory = inventory;
     }
 
-    public void addItemToCart(String username, CartItemInput itemInput) {
-        var cart = cartRepository.findByUserId(username).orElseGet(() -> {
-            var newCart = new CartEntity();
-            newCart.setUserId(username);
-            return cartRepository.save(newCart);
-        });
-
-        cartItemRepository.findById(new CartItemPK(itemInput.itemId(), cart.getId()))
-                .ifPresentOrElse((item) -> updateItemQuantity(item, 1), () -> {
-                    addNewItemToCart(itemInput, cart);
-                });
+    public CartVersion addItemToCart(String username, CartItemInput itemInput) {
+        return addItemToCart(username, itemInput, null);
     }
 
-    private void addNewItemToCart(CartItemInput itemInput, CartEntity cart) {
-        var product = productRepository.findBySku(itemInput.itemId())
-                .orElseThrow(() -> new RuntimeException("Cart Item not found"));
-        var cartItem = new CartItemEntity();
-        cartItem.setQuantity(1);
-        cartItem.setItemId(itemInput.itemId());
-        cartItem.setCartId(cart.getId());
-        cartItem.setCart(cart);
-        cartItem.setPrice(product.getPrice());
-        cartItemRepository.save(cartItem);
+    /**
+     * Adds one unit of the item.
+     *
+     * @param expected when not {@code null}, the cart must still be at this version
+     * @return the cart's new version
+     * @throws StaleCartException when the cart is no longer at {@code expected}
+     */
+    public CartVersion addItemToCart(String username, CartItemInput itemInput, CartVersion expected) {
+        var itemId = itemInput.itemId();
+        inventory.reserve(itemId, 1);
+        try {
+            return cartStore.addItem(username, itemId, () -> productRepository.findBySku(itemId)
+                    .orElseThrow(() -> new CartItemNotFoundException(itemId))
+                    .getPrice(), expected);
+        } catch (RuntimeException e) {
+            inventory.release(itemId, 1);
+            throw e;
+        } finally {
+            cartCache.invalidate(username);
+        }
     }
 
-    private void updateItemQuantity(CartItemEntity item, int byCount) {
-        setItemQuantity(item, item.getQuantity() + byCount);
+    public CartVersion addItemsToCart(String username, CartItemsInput itemsInput) {
+        return addItemsToCart(username, itemsInput, null);
     }
 
-    private void setItemQuantity(CartItemEntity item, int quantity) {
-        item.setQuantity(quantity);
-        cartItemRepository.save(item);
+    /**
+     * Adds every quantity, or none of them.
+     *
+     * @param expected when not {@code null}, the cart must still be at this version
+     * @return the cart's new version
+     * @throws StaleCartException when the cart is no longer at {@code expected}
+     */
+    public CartVersion addItemsToCart(String username, CartItemsInput itemsInput, CartVersion expected) {
+        var quantities = new LinkedHashMap<String, Integer>();
+        for (CartItemQuantityInput item : itemsInput.items()) {
+            quantities.merge(item.itemId(), item.quantity(), Math::addExact);
+        }
+
+        var products = productRepository.findAllBySku(quantities.keySet());
+        if (products.size() != quantities.size()) {
+            throw new CartItemNotFoundException(firstMissing(quantities.keySet(), products));
+        }
+        var prices = new HashMap<String, BigDecimal>(products.size() * 2);
+        products.forEach((sku, product) -> prices.put(sku, product.getPrice()));
+
+        inventory.reserve(quantities);
+        try {
+            return cartStore.addItems(username, quantities, prices, expected);
+        } catch (RuntimeException e) {
+            quantities.forEach(inventory::release);
+            throw e;
+        } finally {
+            cartCache.invalidate(username);
+        }
     }
 
     public void clearCart(String username) {
-        cartRepository.deleteByUserId(username);
+        clearCart(username, null);
+    }
+
+    /**
+     * Deletes the cart and its lines.
+     *
+     * @param expected when not {@code null}, the cart must still be at this version
+     * @throws StaleCartException when the cart is no longer at {@code expected}
+     */
+    public void clearCart(String username, CartVersion expected) {
+        try {
+            cartStore.clearCart(username, expected).forEach(line -> inventory.release(line.itemId(), line.quantity()));
+        } finally {
+            cartCache.invalidate(username);
+        }
     }
 
     public Cart<? extends CartItem> getCart(String username) {
-        return cartRepository.findByUserId(username)
-                .map(this::mapToCart)
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
+        return cartCache.get(username, this::loadCart);
+    }
+
+    /**
+     * The cart's running totals; zero for a user without a cart.
+     */
+    public CartSummaryView getCartSummary(String username) {
+        return cartStore.findSummary(username).orElseGet(() -> new CartSummaryView(username, 0, 0));
     }
 
-    public void removeItemFromCart(String username, String itemId) {
-        cartRepository.findByUserId(username)
-                .ifPresent(cart -> cartItemRepository.deleteById(new CartItemPK(itemId, cart.getId())));
+    /**
+     * The cart's current version; empty for a user without a cart.
+     */
+    public Optional<CartVersion> getCartVersion(String username) {
+        return cartStore.findVersion(username);
     }
 
-    private Cart<? extends CartItem> mapToCart(CartEntity cartEntity) {
-        Cart<CartItemEntity> cart = new Cart<>();
-        cart.setUserId(cartEntity.getUserId());
-        cart.setItems(cartEntity.getItems());
+    private Cart<? extends CartItem> loadCart(String username) {
+        var lines = cartStore.findCartLines(username);
+        if (lines.isEmpty()) {
+            throw new RuntimeException("Cart not found");
+        }
+        return mapToCart(username, lines);
+    }
+
+    public Optional<CartVersion> removeItemFromCart(String username, String itemId) {
+        return removeItemFromCart(username, itemId, null);
+    }
+
+    /**
+     * Deletes the item's line, if the cart has one.
+     *
+     * @param expected when not {@code null}, the cart must still be at this version
+     * @return the cart's version after the removal, empty when nothing was removed and no version was expected
+     * @throws StaleCartException when the cart is no longer at {@code expected}
+     */
+    public Optional<CartVersion> removeItemFromCart(String username, String itemId, CartVersion expected) {
+        try {
+            var removed = cartStore.removeItem(username, itemId, expected);
+            if (removed.isEmpty()) {
+                return Optional.ofNullable(expected);
+            }
+            inventory.release(itemId, removed.get().line().quantity());
+            return Optional.of(removed.get().version());
+        } finally {
+            cartCache.invalidate(username);
+        }
+    }
+
+    private Cart<? extends CartItem> mapToCart(String username, List<CartLineView> lines) {
+        var items = new ArrayList<CartItem>(lines.size());
+        for (CartLineView line : lines) {
+            if (line.itemId() != null) {
+                var item = new CartItem();
+                item.setItemId(line.itemId());
+                item.setPrice(line.price());
+                item.setQuantity(line.quantity());
+                items.add(item);
+            }
+        }
+        Cart<CartItem> cart = new Cart<>();
+        cart.setId(lines.get(0).cartId());
+        cart.setVersion(lines.get(0).cartVersion());
+        cart.setUserId(username);
+        cart.setItems(Collections.unmodifiableList(items));
         return cart;
     }
+
+    // the first of skus the catalog lookup did not return
+    static String firstMissing(Collection<String> skus, Map<String, ?> products) {
+        return skus.stream().filter(sku -> !products.containsKey(sku)).findFirst().orElseThrow();
+    }
 }
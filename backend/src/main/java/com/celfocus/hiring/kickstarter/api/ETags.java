@@ -0,0 +1,44 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Entity tag comparison for conditional requests.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * The tag of one encoding of a representation tagged {@code etag}: {@code etag} itself for JSON, otherwise
+     * {@code etag} with the encoding appended inside the quotes, as in {@code "k2x9-cbor"}. Strong tags must differ
+     * whenever the bytes do, and {@code Vary: Accept} does not change that.
+     */
+    static String forEncoding(String etag, MediaType encoding) {
+        if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(encoding)) {
+            return etag;
+        }
+        var subtype = encoding.getSubtype();
+        var suffix = subtype.substring(subtype.lastIndexOf('-') + 1);
+        return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    /**
+     * Weak comparison, as {@code If-None-Match} uses: {@code *}, or any listed tag with or without {@code W/}. Pass the
+     * tag of the encoding being answered (see {@link #forEncoding}), so a client holding another encoding's tag gets
+     * the full body rather than a {@code 304} for bytes it does not have.
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            var tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
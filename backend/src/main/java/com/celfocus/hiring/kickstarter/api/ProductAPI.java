@@ -0,0 +1,39 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Each endpoint answers every encoding and field selection; {@code Accept} and {@code Accept-Encoding} decide between
+ * the rendered JSON and Jackson, and which ETag the response carries.
+ */
+@Validated
+public interface ProductAPI {
+    @GetMapping
+    ResponseEntity<?> getProducts(@RequestParam(value = "category", required = false) String category,
+                                  @RequestParam(value = "cursor", required = false) String cursor,
+                                  @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                  @RequestParam(value = "fields", required = false) List<String> fields,
+                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
+
+    @GetMapping("/search")
+    ResponseEntity<?> searchProducts(@RequestParam("q") String query,
+                                     @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                     @RequestParam(value = "fields", required = false) List<String> fields,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
+
+    @GetMapping("/{sku}")
+    ResponseEntity<?> getProduct(@PathVariable("sku") String sku,
+                                 @RequestParam(value = "fields", required = false) List<String> fields,
+                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding);
+}
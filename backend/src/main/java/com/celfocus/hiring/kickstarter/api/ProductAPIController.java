@@ -0,0 +1,273 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.ProductPageResponse;
+import com.celfocus.hiring.kickstarter.api.dto.ProductResponse;
+import com.celfocus.hiring.kickstarter.api.dto.ProductSearchResponse;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only catalog listing and search. Pages are cut by SKU (the cursor is the opaque last SKU of the previous
+ * page), so deep pages cost the same as the first one. Responses are tagged with the catalog version, which only
+ * changes when the catalog is reloaded, and with the encoding, as the JSON, Smile and CBOR bodies differ.
+ * <p>
+ * JSON with every field, what most clients ask for, is copied out of the {@link RenderedCatalog} instead of being
+ * serialized, and sent gzipped to clients accepting it. Sparse fields and the binary encodings go through Jackson, as
+ * does everything while the catalog being served is still rendering: a rendering only ever answers for its own
+ * catalog version.
+ */
+@RestController
+@RequestMapping(ProductAPIController.PRODUCTS_PATH)
+public class ProductAPIController implements ProductAPI {
+
+    static final String PRODUCTS_PATH = "/api/v1/products";
+    static final int MAX_LIMIT = 200;
+    static final int MAX_SEARCH_LIMIT = 50;
+
+    private static final Set<String> FIELDS = Set.of("sku", "name", "description", "price", "category", "imageUrl");
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    // what the JSON, Smile and CBOR converters list for a DTO, in converter order
+    private static final List<MediaType> PRODUCIBLE_TYPES = List.of(
+            MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), SMILE, MediaType.APPLICATION_CBOR);
+    private static final List<MediaType> ENCODINGS = List.of(MediaType.APPLICATION_JSON, SMILE, MediaType.APPLICATION_CBOR);
+
+    private final ProductService productService;
+    private final RenderedCatalogCache renderedCatalogCache;
+
+    @Autowired
+    public ProductAPIController(ProductService productService, RenderedCatalogCache renderedCatalogCache) {
+        this.productService = productService;
+        this.renderedCatalogCache = renderedCatalogCache;
+    }
+
+    @Override
+    public ResponseEntity<?> getProducts(String category, String cursor, int limit, List<String> fields, String ifNoneMatch,
+                                         String accept, String acceptEncoding) {
+        checkLimit(limit, MAX_LIMIT);
+        var selected = selectFields(fields);
+        var afterSku = decodeCursor(cursor);
+        // one snapshot for the tag and the body, so a reload in between cannot tag one version's products with another's
+        var catalog = productService.getCatalog();
+        var encoding = negotiateEncoding(accept);
+        var rendered = renderedFor(catalog, fields, encoding);
+        boolean gzip = rendered != null && acceptsGzip(acceptEncoding);
+        var etag = etag(catalog, encoding, gzip);
+        if (ETags.matchesAny(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        if (rendered != null) {
+            return rendered(etag, rendered.page(category, afterSku, limit, gzip));
+        }
+
+        var page = catalog.findPage(category, afterSku, limit);
+        var items = new ArrayList<ProductResponse>(page.products().size());
+        for (Product product : page.products()) {
+            items.add(mapToProductResponse(product, selected));
+        }
+        var nextCursor = page.hasMore() ? encodeCursor(page.lastSku()) : null;
+        return ok(etag).body(new ProductPageResponse(items, nextCursor));
+    }
+
+    @Override
+    public ResponseEntity<?> searchProducts(String query, int limit, List<String> fields, String ifNoneMatch, String accept,
+                                            String acceptEncoding) {
+        checkLimit(limit, MAX_SEARCH_LIMIT);
+        var selected = selectFields(fields);
+        var catalog = productService.getCatalog();
+        var encoding = negotiateEncoding(accept);
+        var rendered = renderedFor(catalog, fields, encoding);
+        boolean gzip = rendered != null && acceptsGzip(acceptEncoding);
+        var etag = etag(catalog, encoding, gzip);
+        if (ETags.matchesAny(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+
+        var products = catalog.search(query, limit);
+        if (rendered != null) {
+            return rendered(etag, rendered.list(products, "]}", gzip));
+        }
+        var items = new ArrayList<ProductResponse>(products.size());
+        for (Product product : products) {
+            items.add(mapToProductResponse(product, selected));
+        }
+        return ok(etag).body(new ProductSearchResponse(items));
+    }
+
+    @Override
+    public ResponseEntity<?> getProduct(String sku, List<String> fields, String ifNoneMatch, String accept, String acceptEncoding) {
+        var selected = selectFields(fields);
+        var catalog = productService.getCatalog();
+        var encoding = negotiateEncoding(accept);
+        var rendered = renderedFor(catalog, fields, encoding);
+        boolean gzip = rendered != null && acceptsGzip(acceptEncoding);
+        var etag = etag(catalog, encoding, gzip);
+        if (ETags.matchesAny(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+
+        if (rendered != null) {
+            var body = rendered.product(sku, gzip);
+            if (body == null) {
+                throw productNotFound();
+            }
+            return rendered(etag, body);
+        }
+        var product = catalog.findBySku(sku).orElseThrow(ProductAPIController::productNotFound);
+        return ok(etag).body(mapToProductResponse(product, selected));
+    }
+
+    static String encodeCursor(String sku) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sku.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    /**
+     * The encoding Spring MVC's message converters will write a response DTO in for this {@code Accept}, found the way
+     * they find it: the most specific of the most preferred types that JSON, Smile or CBOR can write, JSON when
+     * nothing is asked for. Like them, answers {@code 406} when none of the three is acceptable.
+     */
+    static MediaType negotiateEncoding(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, e.getMessage());
+        }
+        MimeTypeUtils.sortBySpecificity(acceptable);
+        var compatible = new ArrayList<MediaType>();
+        for (MediaType requested : acceptable) {
+            for (MediaType producible : PRODUCIBLE_TYPES) {
+                if (requested.isCompatibleWith(producible)) {
+                    var produced = producible.copyQualityValue(requested);
+                    compatible.add(requested.isLessSpecific(produced) ? produced : requested);
+                }
+            }
+        }
+        MimeTypeUtils.sortBySpecificity(compatible);
+        for (MediaType type : compatible) {
+            if (type.isConcrete()) {
+                return ENCODINGS.stream().filter(type::equalsTypeAndSubtype).findFirst().orElse(MediaType.APPLICATION_JSON);
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Products are available as " + ENCODINGS);
+    }
+
+    /**
+     * Whether {@code Accept-Encoding} lists gzip, and not with {@code q=0}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            if (parameters[0].trim().equalsIgnoreCase("gzip")) {
+                return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static void checkLimit(int limit, int max) {
+        if (limit < 1 || limit > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + max);
+        }
+    }
+
+    private static Set<String> selectFields(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return FIELDS;
+        }
+        var selected = new HashSet<String>();
+        selected.add("sku");
+        for (String field : fields) {
+            var name = field.trim();
+            if (!FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    private static ResponseStatusException productNotFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+    }
+
+    /**
+     * The rendering of {@code catalog} when it is ready and the request is for JSON with every field, which is all a
+     * rendering holds; {@code null} when the response must be serialized.
+     */
+    private RenderedCatalog renderedFor(ProductCatalog catalog, List<String> fields, MediaType encoding) {
+        if ((fields != null && !fields.isEmpty()) || !MediaType.APPLICATION_JSON.equalsTypeAndSubtype(encoding)) {
+            return null;
+        }
+        return renderedCatalogCache.current(catalog);
+    }
+
+    // Bodies sent to clients accepting gzip may be gzipped, so their bytes differ from the identity body's: those
+    // responses, and the 304s answering those clients, carry the weak form of the tag.
+    private static String etag(ProductCatalog catalog, MediaType encoding, boolean gzip) {
+        var etag = ETags.forEncoding("\"" + Long.toString(catalog.version(), 36) + "\"", encoding);
+        return gzip ? "W/" + etag : etag;
+    }
+
+    private static ResponseEntity.BodyBuilder ok(String etag) {
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private static ResponseEntity<byte[]> rendered(String etag, RenderedCatalog.Body body) {
+        var response = ok(etag).contentType(MediaType.APPLICATION_JSON);
+        if (body.gzipped()) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.bytes());
+        }
+        return response.body(body.bytes());
+    }
+
+    private static ResponseEntity<Void> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    private ProductResponse mapToProductResponse(Product product, Set<String> fields) {
+        return new ProductResponse(
+                product.getSku(),
+                fields.contains("name") ? product.getName() : null,
+                fields.contains("description") ? product.getDescription() : null,
+                fields.contains("price") ? product.getPrice() : null,
+                fields.contains("category") ? product.getCategory() : null,
+                fields.contains("imageUrl") ? product.getimageUrl() : null);
+    }
+}
@@ -1,14 +1,20 @@
 package com.celfocus.hiring.kickstarter.api;
 
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
 import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
 import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.domain.ProductPage;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Timed("catalog.service")
 public class ProductService {
 
     private final ProductRepository productRepository;
@@ -25,4 +31,24 @@ public class ProductService {
     public Optional<? extends Product> getProduct(String sku) {
         return productRepository.findBySku(sku);
     }
+
+    public Map<String, ? extends Product> getProducts(Collection<String> skus) {
+        return productRepository.findAllBySku(skus);
+    }
+
+    public List<? extends Product> getProductsByCategory(String category) {
+        return productRepository.findByCategory(category);
+    }
+
+    public ProductPage getProductPage(String category, String afterSku, int limit) {
+        return productRepository.findPage(category, afterSku, limit);
+    }
+
+    public List<? extends Product> searchProducts(String query, int limit) {
+        return productRepository.search(query, limit);
+    }
+
+    public ProductCatalog getCatalog() {
+        return productRepository.snapshot();
+    }
 }
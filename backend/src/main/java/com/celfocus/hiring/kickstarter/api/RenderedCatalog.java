@@ -0,0 +1,268 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.ProductResponse;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.domain.ProductPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The JSON of every product of one catalog, with all fields, written once and kept in direct buffers next to its
+ * deflated form. Responses listing products are put together by copying those bytes, never by serializing.
+ * <p>
+ * Each product is deflated on its own and flushed to a byte boundary, so the deflated products of any page can be
+ * chained into one gzip stream: the JSON around them goes in stored blocks, and only the CRC of the page is computed
+ * per response. Products compressed apart compress less than a whole page, so the pages that walking the catalog at
+ * {@link #PAGE_SIZE} goes through, with or without a category, are also kept gzipped whole.
+ */
+final class RenderedCatalog {
+
+    /**
+     * The listing's default page size.
+     */
+    static final int PAGE_SIZE = 50;
+    static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // an empty final block with fixed codes, closing the deflate stream
+    private static final byte[] FINAL_BLOCK = {0x03, 0x00};
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int STORED_BLOCK_HEADER_LENGTH = 5;
+    private static final byte[] ITEMS_START = "{\"items\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = {','};
+
+    private final ProductCatalog catalog;
+    private final Map<String, RenderedProduct> products;
+    private final Map<PageStart, Bytes> gzippedPages;
+
+    private RenderedCatalog(ProductCatalog catalog, Map<String, RenderedProduct> products, Map<PageStart, Bytes> gzippedPages) {
+        this.catalog = catalog;
+        this.products = products;
+        this.gzippedPages = gzippedPages;
+    }
+
+    static RenderedCatalog render(ProductCatalog catalog, ObjectMapper objectMapper) {
+        var arena = new Arena();
+        var products = new HashMap<String, RenderedProduct>(catalog.size() * 4 / 3 + 1);
+        var gzippedPages = new HashMap<PageStart, Bytes>();
+        var deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        var crc = new CRC32();
+        try {
+            for (Product product : catalog.findAll()) {
+                var json = objectMapper.writeValueAsBytes(new ProductResponse(product.getSku(), product.getName(),
+                        product.getDescription(), product.getPrice(), product.getCategory(), product.getimageUrl()));
+                var deflated = deflate(deflater, json);
+                crc.reset();
+                crc.update(json);
+                var stored = arena.put(json, deflated);
+                products.put(product.getSku(), new RenderedProduct(stored.chunk(), stored.offset(), json.length, deflated.length, (int) crc.getValue()));
+            }
+
+            var withProducts = new RenderedCatalog(catalog, products, Map.of());
+            var categories = new ArrayList<String>(catalog.categories());
+            categories.add(null);
+            for (String category : categories) {
+                String afterSku = null;
+                ProductPage page;
+                do {
+                    page = catalog.findPage(category, afterSku, PAGE_SIZE);
+                    var json = withProducts.list(page.products(), pageEnd(page), false).bytes();
+                    gzippedPages.put(new PageStart(category, afterSku), arena.put(gzip(json)));
+                    afterSku = page.lastSku();
+                } while (page.hasMore());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render catalog version " + catalog.version(), e);
+        } finally {
+            deflater.end();
+        }
+        return new RenderedCatalog(catalog, Map.copyOf(products), Map.copyOf(gzippedPages));
+    }
+
+    /**
+     * The catalog rendered, to pick the products to list from.
+     */
+    ProductCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * The product's JSON, gzipped when asked for and smaller; {@code null} when the catalog has no such product.
+     */
+    Body product(String sku, boolean gzip) {
+        var product = products.get(sku);
+        if (product == null) {
+            return null;
+        }
+        int gzipLength = GZIP_HEADER.length + product.deflatedLength() + FINAL_BLOCK.length + GZIP_TRAILER_LENGTH;
+        if (!gzip || gzipLength >= product.jsonLength()) {
+            var json = ByteBuffer.wrap(new byte[product.jsonLength()]);
+            copy(product.chunk(), product.offset(), product.jsonLength(), json);
+            return new Body(json.array(), false);
+        }
+        var body = ByteBuffer.wrap(new byte[gzipLength]).put(GZIP_HEADER);
+        copy(product.chunk(), product.offset() + product.jsonLength(), product.deflatedLength(), body);
+        body.put(FINAL_BLOCK);
+        putGzipTrailer(body, product.crc(), product.jsonLength());
+        return new Body(body.array(), true);
+    }
+
+    /**
+     * A {@code ProductPageResponse} of {@link #catalog()}'s {@link ProductCatalog#findPage}.
+     */
+    Body page(String category, String afterSku, int limit, boolean gzip) {
+        if (gzip && limit == PAGE_SIZE) {
+            var whole = gzippedPages.get(new PageStart(category, afterSku));
+            if (whole != null) {
+                var body = ByteBuffer.wrap(new byte[whole.length()]);
+                copy(whole.chunk(), whole.offset(), whole.length(), body);
+                return new Body(body.array(), true);
+            }
+        }
+        var page = catalog.findPage(category, afterSku, limit);
+        return list(page.products(), pageEnd(page), gzip);
+    }
+
+    /**
+     * {@code {"items":[...]}} with the given products of {@link #catalog()}, then {@code end}, the rest of the object
+     * from the closing bracket on.
+     */
+    Body list(List<? extends Product> products, String end, boolean gzip) {
+        var listed = new RenderedProduct[products.size()];
+        var endBytes = end.getBytes(StandardCharsets.UTF_8);
+        int separators = Math.max(0, listed.length - 1);
+        int jsonLength = ITEMS_START.length + separators + endBytes.length;
+        int deflatedLength = 0;
+        for (int i = 0; i < listed.length; i++) {
+            listed[i] = this.products.get(products.get(i).getSku());
+            jsonLength += listed[i].jsonLength();
+            deflatedLength += listed[i].deflatedLength();
+        }
+        int storedLength = ITEMS_START.length + separators + endBytes.length + STORED_BLOCK_HEADER_LENGTH * (separators + 2);
+        int gzipLength = GZIP_HEADER.length + storedLength + deflatedLength + FINAL_BLOCK.length + GZIP_TRAILER_LENGTH;
+        if (!gzip || gzipLength >= jsonLength) {
+            var body = ByteBuffer.wrap(new byte[jsonLength]).put(ITEMS_START);
+            for (int i = 0; i < listed.length; i++) {
+                if (i > 0) {
+                    body.put(SEPARATOR);
+                }
+                copy(listed[i].chunk(), listed[i].offset(), listed[i].jsonLength(), body);
+            }
+            return new Body(body.put(endBytes).array(), false);
+        }
+
+        var crc = new CRC32();
+        var body = ByteBuffer.wrap(new byte[gzipLength]).put(GZIP_HEADER);
+        putStoredBlock(body, crc, ITEMS_START);
+        for (int i = 0; i < listed.length; i++) {
+            if (i > 0) {
+                putStoredBlock(body, crc, SEPARATOR);
+            }
+            var product = listed[i];
+            crc.update(product.chunk().slice(product.offset(), product.jsonLength()));
+            copy(product.chunk(), product.offset() + product.jsonLength(), product.deflatedLength(), body);
+        }
+        putStoredBlock(body, crc, endBytes);
+        body.put(FINAL_BLOCK);
+        putGzipTrailer(body, (int) crc.getValue(), jsonLength);
+        return new Body(body.array(), true);
+    }
+
+    private static String pageEnd(ProductPage page) {
+        return page.hasMore()
+                ? "],\"nextCursor\":\"" + ProductAPIController.encodeCursor(page.lastSku()) + "\"}"
+                : "],\"nextCursor\":null}";
+    }
+
+    /**
+     * Deflates on its own, without a final block, and ends on a byte boundary.
+     */
+    private static byte[] deflate(Deflater deflater, byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        var out = new ByteArrayOutputStream(input.length / 2 + 64);
+        var buffer = new byte[Math.max(256, input.length + 64)];
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, length);
+        } while (length == buffer.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] input) throws IOException {
+        var out = new ByteArrayOutputStream(input.length / 4 + 64);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(input);
+        }
+        return out.toByteArray();
+    }
+
+    // absolute reads only, so the shared chunks can be read concurrently
+    private static void copy(ByteBuffer chunk, int offset, int length, ByteBuffer body) {
+        chunk.get(offset, body.array(), body.position(), length);
+        body.position(body.position() + length);
+    }
+
+    private static void putStoredBlock(ByteBuffer body, CRC32 crc, byte[] bytes) {
+        // BFINAL 0 and BTYPE 00 padded to a byte, then LEN and NLEN, little-endian
+        body.put((byte) 0)
+                .put((byte) bytes.length).put((byte) (bytes.length >>> 8))
+                .put((byte) ~bytes.length).put((byte) (~bytes.length >>> 8))
+                .put(bytes);
+        crc.update(bytes);
+    }
+
+    private static void putGzipTrailer(ByteBuffer body, int crc, int length) {
+        body.put((byte) crc).put((byte) (crc >>> 8)).put((byte) (crc >>> 16)).put((byte) (crc >>> 24))
+                .put((byte) length).put((byte) (length >>> 8)).put((byte) (length >>> 16)).put((byte) (length >>> 24));
+    }
+
+    record Body(byte[] bytes, boolean gzipped) {
+    }
+
+    private record RenderedProduct(ByteBuffer chunk, int offset, int jsonLength, int deflatedLength, int crc) {
+    }
+
+    private record PageStart(String category, String afterSku) {
+    }
+
+    private record Bytes(ByteBuffer chunk, int offset, int length) {
+    }
+
+    /**
+     * Append-only direct buffers, as in {@code OffHeapTextStore}.
+     */
+    private static final class Arena {
+
+        private ByteBuffer chunk;
+
+        Bytes put(byte[]... parts) {
+            int length = 0;
+            for (byte[] part : parts) {
+                length += part.length;
+            }
+            if (chunk == null || chunk.remaining() < length) {
+                chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+            }
+            int offset = chunk.position();
+            for (byte[] part : parts) {
+                chunk.put(part);
+            }
+            return new Bytes(chunk, offset, length);
+        }
+    }
+}
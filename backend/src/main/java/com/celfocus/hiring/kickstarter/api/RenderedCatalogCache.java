@@ -0,0 +1,105 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogPublishedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the {@link RenderedCatalog} of the catalog being served. Each published catalog is rendered on a background
+ * thread. Until its rendering is ready there is none for that catalog, and callers serialize those responses
+ * themselves rather than answer with the previous catalog's products. A rendering's buffers are released once the
+ * last response using it has been copied out.
+ */
+@Component
+public class RenderedCatalogCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderedCatalogCache.class);
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final Timer renderTimer;
+
+    // the newest catalog handed to the render thread, so repeated requests for it queue a single render and an older
+    // catalog is never rendered over it
+    private final AtomicReference<ProductCatalog> requested = new AtomicReference<>();
+    private volatile RenderedCatalog rendered;
+    private ExecutorService renderExecutor;
+
+    @Autowired
+    public RenderedCatalogCache(ProductService productService, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.renderTimer = Timer.builder("catalog.render")
+                .description("Time to render a catalog's JSON and its deflated form")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "catalog-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the catalog may have been published before this bean listened, or still be loading in the background
+        renderExecutor.execute(() -> renderLater(productService.getCatalog()));
+    }
+
+    @PreDestroy
+    void stop() {
+        renderExecutor.shutdownNow();
+    }
+
+    @EventListener
+    void onCatalogPublished(ProductCatalogPublishedEvent event) {
+        renderLater(event.catalog());
+    }
+
+    /**
+     * The rendering of {@code catalog}, or {@code null} while it is still rendering.
+     */
+    RenderedCatalog current(ProductCatalog catalog) {
+        var current = rendered;
+        if (current != null && current.catalog().version() == catalog.version()) {
+            return current;
+        }
+        renderLater(catalog);
+        return null;
+    }
+
+    private void renderLater(ProductCatalog catalog) {
+        var previous = requested.getAndUpdate(newest ->
+                newest != null && newest.version() >= catalog.version() ? newest : catalog);
+        if (previous == null || previous.version() < catalog.version()) {
+            renderExecutor.execute(this::renderRequested);
+        }
+    }
+
+    private void renderRequested() {
+        var catalog = requested.get();
+        var current = rendered;
+        if (current != null && current.catalog() == catalog) {
+            return;
+        }
+        try {
+            rendered = renderTimer.record(() -> RenderedCatalog.render(catalog, objectMapper));
+        } catch (RuntimeException e) {
+            requested.compareAndSet(catalog, null);
+            LOGGER.warn("Rendering catalog version {} failed, still serving version {}",
+                    catalog.version(), current == null ? null : current.catalog().version(), e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ *
+ * @param itemId    same value as the `sku`
+ * @param quantity  units to add to the cart line, at most {@link #MAX_QUANTITY}
+ */
+public record CartItemQuantityInput(@NotBlank String itemId, @Positive @Max(CartItemQuantityInput.MAX_QUANTITY) int quantity) {
+
+    public static final int MAX_QUANTITY = 10_000;
+}
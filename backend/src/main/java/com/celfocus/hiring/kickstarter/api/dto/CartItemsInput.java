@@ -0,0 +1,15 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ *
+ * @param items  lines to add in one go, repeated `itemId`s are summed
+ */
+public record CartItemsInput(@NotEmpty @Size(max = 500) List<@Valid CartItemQuantityInput> items) {
+
+}
@@ -0,0 +1,6 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import java.math.BigDecimal;
+
+public record CartSummaryResponse(int itemCount, BigDecimal subtotal) {
+}
@@ -0,0 +1,9 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import java.util.List;
+
+/**
+ * A page of products; {@code nextCursor} is {@code null} on the last page.
+ */
+public record ProductPageResponse(List<ProductResponse> items, String nextCursor) {
+}
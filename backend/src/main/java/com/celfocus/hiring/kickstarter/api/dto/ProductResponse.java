@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * A product with only the requested fields set; the others are left {@code null} and not serialized.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductResponse(String sku, String name, String description, BigDecimal price, String category, String imageUrl) {
+}
@@ -0,0 +1,9 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import java.util.List;
+
+/**
+ * Products matching a search query, most relevant first.
+ */
+public record ProductSearchResponse(List<ProductResponse> items) {
+}
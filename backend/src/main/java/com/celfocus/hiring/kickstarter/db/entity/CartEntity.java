@@ -5,19 +5,25 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.NaturalId;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.List;
 
 @Entity
-@Table(name = "TB_CART", uniqueConstraints = @UniqueConstraint(name = "UK_CART_TO_USER", columnNames = "USER_ID"))
+@Table(name = "TB_CART",
+        uniqueConstraints = @UniqueConstraint(name = "UK_CART_TO_USER", columnNames = "USER_ID"),
+        indexes = @Index(name = "IX_CART_UPDATED_AT", columnList = "UPDATED_AT"))
 public class CartEntity extends Cart<CartItemEntity> implements Serializable {
 
-    private Long id;
+    private int itemCount;
+    private long subtotalMinorUnits;
+    private Instant updatedAt;
 
     @Id
     @Column(name = "ID")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Override
     public Long getId() {
-        return id;
+        return super.getId();
     }
 
     @NaturalId
@@ -33,7 +39,50 @@ public class CartEntity extends Cart<CartItemEntity> implements Serializable {
         return super.getItems();
     }
 
-    public void setId(Long id) {
-        this.id = id;
+    /**
+     * Bumped by every cart mutation, in the same statement that updates the totals.
+     */
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    @Override
+    public long getVersion() {
+        return super.getVersion();
+    }
+
+    /**
+     * Units across all lines, kept up to date by every cart mutation.
+     */
+    @Column(name = "ITEM_COUNT", nullable = false)
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Sum of quantity times line price, in minor units, kept up to date by every cart mutation.
+     */
+    @Column(name = "SUBTOTAL_MINOR_UNITS", nullable = false)
+    public long getSubtotalMinorUnits() {
+        return subtotalMinorUnits;
+    }
+
+    public void setSubtotalMinorUnits(long subtotalMinorUnits) {
+        this.subtotalMinorUnits = subtotalMinorUnits;
+    }
+
+    /**
+     * When the cart was created or last changed, set in the same statement that bumps the version; carts idle for
+     * longer than {@code cart.expiry.ttl} are purged.
+     */
+    @Column(name = "UPDATED_AT", nullable = false)
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
     }
-}
\ No newline at end of file
+}
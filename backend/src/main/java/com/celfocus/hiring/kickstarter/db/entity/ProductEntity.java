@@ -1,18 +1,32 @@
 package com.celfocus.hiring.kickstarter.db.entity;
 
 import com.celfocus.hiring.kickstarter.domain.Product;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import com.celfocus.hiring.kickstarter.util.OffHeapText;
+import com.celfocus.hiring.kickstarter.util.OffHeapTextStore;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import org.hibernate.annotations.NaturalId;
+import jakarta.persistence.Transient;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.Objects;
 
+/**
+ * Catalog product stored compactly: the price as a {@code long} amount of minor units (cents), the quantity as an
+ * {@code int} and the description as {@link OffHeapText}, so neither a {@link BigDecimal}, an {@link Integer} nor a
+ * description {@link String} lives on the heap per product. They are materialized on read.
+ */
 @Entity
 public class ProductEntity extends Product implements Serializable {
 
+    public static final int PRICE_SCALE = MinorUnits.SCALE;
+
+    private long priceMinorUnits;
+    private boolean priced;
+    private int quantity;
+    private boolean stocked;
+    private OffHeapText description;
 
     public String getName() {
         return super.getName();
@@ -32,19 +46,47 @@ public class ProductEntity extends Product implements Serializable {
     }
 
     public String getDescription() {
-        return super.getDescription();
+        return description == null ? null : description.toString();
     }
 
     public void setDescription(String description) {
-        super.setDescription(description);
+        this.description = description == null ? null : OffHeapText.onHeap(description);
+    }
+
+    /**
+     * Moves the description into {@code store}, typically off-heap.
+     */
+    public void moveDescriptionTo(OffHeapTextStore store) {
+        if (description != null) {
+            description = store.copyOf(description);
+        }
     }
 
     public BigDecimal getPrice() {
-        return super.getPrice();
+        return priced ? MinorUnits.toDecimal(priceMinorUnits) : null;
     }
 
+    /**
+     * @throws ArithmeticException when the price has more than {@link #PRICE_SCALE} decimals
+     */
     public void setPrice(BigDecimal price) {
-        super.setPrice(price);
+        this.priced = price != null;
+        this.priceMinorUnits = price == null ? 0 : MinorUnits.of(price);
+    }
+
+    @Transient
+    @JsonIgnore
+    public long getPriceMinorUnits() {
+        return priceMinorUnits;
+    }
+
+    public Integer getQuantity() {
+        return stocked ? quantity : null;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.stocked = quantity != null;
+        this.quantity = quantity == null ? 0 : quantity;
     }
 
     public String getimageUrl() {
@@ -54,5 +96,13 @@ public class ProductEntity extends Product implements Serializable {
     public void setimageUrl(String imageUrl) {
         super.setimageUrl(imageUrl);
     }
+
+    public String getCategory() {
+        return super.getCategory();
+    }
+
+    public void setCategory(String category) {
+        super.setCategory(category);
+    }
 }
 
@@ -0,0 +1,59 @@
+package com.celfocus.hiring.kickstarter.db.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Last checkpoint of a SKU's stock counter.
+ */
+@Entity
+@Table(name = "TB_STOCK")
+public class StockEntity implements Serializable {
+
+    private String sku;
+    private int onHand;
+    private int reserved;
+    private Instant checkpointedAt;
+
+    @Id
+    @Column(name = "SKU")
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    @Column(name = "ON_HAND")
+    public int getOnHand() {
+        return onHand;
+    }
+
+    public void setOnHand(int onHand) {
+        this.onHand = onHand;
+    }
+
+    @Column(name = "RESERVED")
+    public int getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(int reserved) {
+        this.reserved = reserved;
+    }
+
+    @Column(name = "CHECKPOINTED_AT")
+    public Instant getCheckpointedAt() {
+        return checkpointedAt;
+    }
+
+    public void setCheckpointedAt(Instant checkpointedAt) {
+        this.checkpointedAt = checkpointedAt;
+    }
+}
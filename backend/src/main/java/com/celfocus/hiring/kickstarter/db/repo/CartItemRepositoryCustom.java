@@ -0,0 +1,55 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CartItemRepositoryCustom {
+
+    /**
+     * Atomically adds {@code byCount} to the quantity of an existing cart line.
+     *
+     * @return the unit price of the updated line, empty when the user has no such line
+     */
+    Optional<BigDecimal> incrementQuantity(String username, String itemId, int byCount);
+
+    /**
+     * Inserts a new cart line.
+     *
+     * @return {@code false} when the line already exists
+     */
+    boolean insertItem(Long cartId, String itemId, BigDecimal price, int quantity);
+
+    /**
+     * Adds each quantity to the matching line of the cart, inserting the lines that do not exist yet.
+     * Updates and inserts are sent as JDBC batches.
+     *
+     * @param quantities units to add, by item id
+     * @param prices     unit price of every item in {@code quantities}, by item id, for the lines to insert
+     * @return the unit price of every line added to, by item id; existing lines keep the price they were added at
+     */
+    Map<String, BigDecimal> addItems(Long cartId, Map<String, Integer> quantities, Map<String, BigDecimal> prices);
+
+    /**
+     * Deletes a cart line.
+     *
+     * @return the line as it was deleted, empty when the user has no such line
+     */
+    Optional<CartLineView> removeItem(String username, String itemId);
+
+    /**
+     * Deletes every line of the user's cart, leaving the cart itself.
+     *
+     * @return the lines as they were deleted
+     */
+    List<CartLineView> removeItems(String username);
+
+    /**
+     * Deletes every line of the given carts in one statement, leaving the carts themselves.
+     *
+     * @param userIds owner of each cart, by cart id
+     * @return the lines as they were deleted
+     */
+    List<CartLineView> removeItemsOfCarts(Map<Long, String> userIds);
+}
@@ -0,0 +1,180 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+
+    // FINAL TABLE returns the updated line, so the caller learns its price without another round trip.
+    static final String INCREMENT_QUANTITY = """
+            SELECT PRICE FROM FINAL TABLE (
+                UPDATE TB_CART_ITEM SET QUANTITY = QUANTITY + :byCount
+                WHERE CART_ITEM_ID = :itemId AND CART_ID = (SELECT ID FROM TB_CART WHERE USER_ID = :userId))""";
+
+    static final String INCREMENT_CART_QUANTITY = """
+            UPDATE TB_CART_ITEM SET QUANTITY = QUANTITY + :byCount
+            WHERE CART_ITEM_ID = :itemId AND CART_ID = :cartId""";
+
+    static final String INSERT_ITEM = """
+            INSERT INTO TB_CART_ITEM (CART_ID, CART_ITEM_ID, PRICE, QUANTITY)
+            VALUES (:cartId, :itemId, :price, :quantity)""";
+
+    static final String FIND_PRICES = """
+            SELECT CART_ITEM_ID, PRICE FROM TB_CART_ITEM
+            WHERE CART_ID = :cartId AND CART_ITEM_ID IN (:itemIds)""";
+
+    // OLD TABLE returns the rows as the DELETE removed them, so concurrent removals each see only their own rows.
+    static final String DELETE_ITEM = """
+            SELECT CART_ID, CART_ITEM_ID, PRICE, QUANTITY FROM OLD TABLE (
+                DELETE FROM TB_CART_ITEM
+                WHERE CART_ITEM_ID = :itemId AND CART_ID = (SELECT ID FROM TB_CART WHERE USER_ID = :userId))""";
+
+    static final String DELETE_ITEMS = """
+            SELECT CART_ID, CART_ITEM_ID, PRICE, QUANTITY FROM OLD TABLE (
+                DELETE FROM TB_CART_ITEM
+                WHERE CART_ID = (SELECT ID FROM TB_CART WHERE USER_ID = :userId))""";
+
+    static final String DELETE_CART_ITEMS = """
+            SELECT CART_ID, CART_ITEM_ID, PRICE, QUANTITY FROM OLD TABLE (
+                DELETE FROM TB_CART_ITEM WHERE CART_ID IN (:cartIds))""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartItemRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<BigDecimal> incrementQuantity(String username, String itemId, int byCount) {
+        var prices = jdbcTemplate.queryForList(INCREMENT_QUANTITY, new MapSqlParameterSource()
+                .addValue("userId", username)
+                .addValue("itemId", itemId)
+                .addValue("byCount", byCount), BigDecimal.class);
+        return prices.stream().findFirst();
+    }
+
+    @Override
+    public boolean insertItem(Long cartId, String itemId, BigDecimal price, int quantity) {
+        try {
+            jdbcTemplate.update(INSERT_ITEM, new MapSqlParameterSource()
+                    .addValue("cartId", cartId)
+                    .addValue("itemId", itemId)
+                    .addValue("price", price)
+                    .addValue("quantity", quantity));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, BigDecimal> addItems(Long cartId, Map<String, Integer> quantities, Map<String, BigDecimal> prices) {
+        var itemIds = List.copyOf(quantities.keySet());
+        var increments = new SqlParameterSource[itemIds.size()];
+        for (int i = 0; i < itemIds.size(); i++) {
+            increments[i] = new MapSqlParameterSource()
+                    .addValue("cartId", cartId)
+                    .addValue("itemId", itemIds.get(i))
+                    .addValue("byCount", quantities.get(itemIds.get(i)));
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT_CART_QUANTITY, increments);
+
+        var missing = new ArrayList<String>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            if (updated[i] == 0) {
+                missing.add(itemIds.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return findPrices(cartId, itemIds);
+        }
+
+        var inserts = new SqlParameterSource[missing.size()];
+        for (int i = 0; i < missing.size(); i++) {
+            inserts[i] = new MapSqlParameterSource()
+                    .addValue("cartId", cartId)
+                    .addValue("itemId", missing.get(i))
+                    .addValue("price", prices.get(missing.get(i)))
+                    .addValue("quantity", quantities.get(missing.get(i)));
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_ITEM, inserts);
+        } catch (DuplicateKeyException e) {
+            if (!(e.getCause() instanceof BatchUpdateException batchException)) {
+                throw e;
+            }
+            // a concurrent request inserted some of the lines, add to those instead
+            int[] inserted = batchException.getUpdateCounts();
+            for (int i = 0; i < missing.size(); i++) {
+                if (i >= inserted.length || inserted[i] == Statement.EXECUTE_FAILED) {
+                    addItem(cartId, missing.get(i), prices.get(missing.get(i)), quantities.get(missing.get(i)));
+                }
+            }
+        }
+        return findPrices(cartId, itemIds);
+    }
+
+    // Line prices never change once inserted, and this transaction now holds every line it touched.
+    private Map<String, BigDecimal> findPrices(Long cartId, List<String> itemIds) {
+        var linePrices = new HashMap<String, BigDecimal>(itemIds.size() * 2);
+        jdbcTemplate.query(FIND_PRICES, new MapSqlParameterSource()
+                        .addValue("cartId", cartId)
+                        .addValue("itemIds", itemIds),
+                row -> {
+                    linePrices.put(row.getString("CART_ITEM_ID"), row.getBigDecimal("PRICE"));
+                });
+        return linePrices;
+    }
+
+    @Override
+    public Optional<CartLineView> removeItem(String username, String itemId) {
+        var removed = jdbcTemplate.query(DELETE_ITEM, new MapSqlParameterSource()
+                .addValue("userId", username)
+                .addValue("itemId", itemId), (row, rowNum) -> mapRemovedLine(username, row));
+        return removed.stream().findFirst();
+    }
+
+    @Override
+    public List<CartLineView> removeItems(String username) {
+        return jdbcTemplate.query(DELETE_ITEMS, new MapSqlParameterSource("userId", username),
+                (row, rowNum) -> mapRemovedLine(username, row));
+    }
+
+    @Override
+    public List<CartLineView> removeItemsOfCarts(Map<Long, String> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(DELETE_CART_ITEMS, new MapSqlParameterSource("cartIds", userIds.keySet()),
+                (row, rowNum) -> mapRemovedLine(userIds.get(row.getLong("CART_ID")), row));
+    }
+
+    private static CartLineView mapRemovedLine(String username, ResultSet row) throws SQLException {
+        return new CartLineView(row.getLong("CART_ID"), null, username, row.getString("CART_ITEM_ID"), row.getBigDecimal("PRICE"), row.getInt("QUANTITY"));
+    }
+
+    private void addItem(Long cartId, String itemId, BigDecimal price, int quantity) {
+        var increment = new MapSqlParameterSource()
+                .addValue("cartId", cartId)
+                .addValue("itemId", itemId)
+                .addValue("byCount", quantity);
+        if (jdbcTemplate.update(INCREMENT_CART_QUANTITY, increment) == 0 && !insertItem(cartId, itemId, price, quantity)) {
+            jdbcTemplate.update(INCREMENT_CART_QUANTITY, increment);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only row of a cart joined with its lines. Item columns are {@code null} for a cart without lines, and
+ * {@code cartVersion} is {@code null} for lines read back from a delete.
+ */
+public record CartLineView(Long cartId, Long cartVersion, String userId, String itemId, BigDecimal price, Integer quantity) {
+}
@@ -1,15 +1,61 @@
 package com.celfocus.hiring.kickstarter.db.repo;
 
 import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
-public interface CartRepository extends JpaRepository<CartEntity, Long> {
+public interface CartRepository extends JpaRepository<CartEntity, Long>, CartRepositoryCustom {
 
     Optional<CartEntity> findByUserId(String username);
 
+    @Query("""
+            select new com.celfocus.hiring.kickstarter.db.repo.CartLineView(c.id, c.version, c.userId, i.itemId, i.price, i.quantity)
+            from CartEntity c left join c.items i
+            where c.userId = :username""")
+    List<CartLineView> findCartLinesByUserId(@Param("username") String username);
+
+    @Query("""
+            select new com.celfocus.hiring.kickstarter.db.repo.CartSummaryView(c.userId, c.itemCount, c.subtotalMinorUnits)
+            from CartEntity c
+            where c.userId = :username""")
+    Optional<CartSummaryView> findSummaryByUserId(@Param("username") String username);
+
+    @Query("""
+            select new com.celfocus.hiring.kickstarter.domain.CartVersion(c.id, c.version)
+            from CartEntity c
+            where c.userId = :username""")
+    Optional<CartVersion> findVersionByUserId(@Param("username") String username);
+
+    /**
+     * Carts last changed before {@code cutoff}, least recently changed first, found through {@code IX_CART_UPDATED_AT}.
+     */
+    @Query("""
+            select new com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView(c.id, c.version, c.userId, c.updatedAt)
+            from CartEntity c
+            where c.updatedAt < :cutoff
+            order by c.updatedAt""")
+    List<ExpiredCartView> findExpired(@Param("cutoff") Instant cutoff, Limit limit);
+
+    /**
+     * Deletes the cart row in one statement; its lines must have been removed already.
+     */
+    @Modifying
+    @Query("delete from CartEntity c where c.userId = :username")
+    int deleteByUserId(@Param("username") String username);
+
+    /**
+     * Deletes the cart row only while it is still at {@code cartId} and {@code version}; its lines must have been
+     * removed already.
+     */
     @Modifying
-    void deleteByUserId(String username);
+    @Query("delete from CartEntity c where c.userId = :username and c.id = :cartId and c.version = :version")
+    int deleteByUserIdAndVersion(@Param("username") String username, @Param("cartId") long cartId, @Param("version") long version);
 }
@@ -0,0 +1,31 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CartRepositoryCustom {
+
+    /**
+     * Returns the id of the user's cart, creating it when missing. Safe against concurrent creation for the same user.
+     */
+    Long findOrCreateCartId(String username);
+
+    /**
+     * Adds to the cart's running totals, negative values subtract, and bumps its version. Relative, so concurrent
+     * mutations never lose an update.
+     *
+     * @param expected when not {@code null}, the update only applies while the cart is still at this version
+     * @return the cart's new version, empty when it does not exist or is no longer at {@code expected}
+     */
+    Optional<CartVersion> addToTotals(String username, int units, long amountMinorUnits, CartVersion expected);
+
+    /**
+     * Deletes the cart rows that are still at the given versions in one statement; their lines must have been removed
+     * already.
+     *
+     * @return the number of carts deleted
+     */
+    int deleteCarts(List<CartVersion> versions);
+}
@@ -0,0 +1,90 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+class CartRepositoryImpl implements CartRepositoryCustom {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    static final String FIND_CART_ID = "SELECT ID FROM TB_CART WHERE USER_ID = :userId";
+
+    static final String INSERT_CART = """
+            INSERT INTO TB_CART (USER_ID, ITEM_COUNT, SUBTOTAL_MINOR_UNITS, VERSION, UPDATED_AT)
+            VALUES (:userId, 0, 0, 0, CURRENT_TIMESTAMP)""";
+
+    // FINAL TABLE returns the bumped version; the row then stays locked until commit, so nothing else can move it.
+    static final String ADD_TO_TOTALS = """
+            SELECT ID, VERSION FROM FINAL TABLE (
+                UPDATE TB_CART SET ITEM_COUNT = ITEM_COUNT + :units, SUBTOTAL_MINOR_UNITS = SUBTOTAL_MINOR_UNITS + :amount,
+                    VERSION = VERSION + 1, UPDATED_AT = CURRENT_TIMESTAMP
+                WHERE USER_ID = :userId)""";
+
+    static final String ADD_TO_TOTALS_IF_VERSION = """
+            SELECT ID, VERSION FROM FINAL TABLE (
+                UPDATE TB_CART SET ITEM_COUNT = ITEM_COUNT + :units, SUBTOTAL_MINOR_UNITS = SUBTOTAL_MINOR_UNITS + :amount,
+                    VERSION = VERSION + 1, UPDATED_AT = CURRENT_TIMESTAMP
+                WHERE USER_ID = :userId AND ID = :cartId AND VERSION = :version)""";
+
+    static final String DELETE_CARTS = "DELETE FROM TB_CART WHERE (ID, VERSION) IN (:versions)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CartRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Long findOrCreateCartId(String username) {
+        var params = new MapSqlParameterSource("userId", username);
+        for (int attempt = 1; ; attempt++) {
+            var ids = jdbcTemplate.queryForList(FIND_CART_ID, params, Long.class);
+            if (!ids.isEmpty()) {
+                return ids.get(0);
+            }
+            try {
+                var keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(INSERT_CART, params, keyHolder, new String[]{"ID"});
+                return Objects.requireNonNull(keyHolder.getKey()).longValue();
+            } catch (DuplicateKeyException e) {
+                // another request created the cart in the meantime, read it back
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<CartVersion> addToTotals(String username, int units, long amountMinorUnits, CartVersion expected) {
+        var params = new MapSqlParameterSource()
+                .addValue("userId", username)
+                .addValue("units", units)
+                .addValue("amount", amountMinorUnits);
+        var sql = ADD_TO_TOTALS;
+        if (expected != null) {
+            params.addValue("cartId", expected.cartId()).addValue("version", expected.version());
+            sql = ADD_TO_TOTALS_IF_VERSION;
+        }
+        var versions = jdbcTemplate.query(sql, params, (row, rowNum) -> new CartVersion(row.getLong("ID"), row.getLong("VERSION")));
+        return versions.stream().findFirst();
+    }
+
+    @Override
+    public int deleteCarts(List<CartVersion> versions) {
+        if (versions.isEmpty()) {
+            return 0;
+        }
+        var tuples = versions.stream().map(version -> new Object[]{version.cartId(), version.version()}).toList();
+        return jdbcTemplate.update(DELETE_CARTS, new MapSqlParameterSource("versions", tuples));
+    }
+}
@@ -0,0 +1,7 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+/**
+ * Running totals of a cart, read from the cart row alone.
+ */
+public record CartSummaryView(String userId, int itemCount, long subtotalMinorUnits) {
+}
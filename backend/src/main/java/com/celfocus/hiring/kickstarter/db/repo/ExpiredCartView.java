@@ -0,0 +1,9 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import java.time.Instant;
+
+/**
+ * A cart that has not changed for longer than the expiry TTL, with the version it was found at.
+ */
+public record ExpiredCartView(Long cartId, Long cartVersion, String userId, Instant updatedAt) {
+}
@@ -0,0 +1,191 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.domain.ProductPage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable, indexed view of a loaded catalog: products keyed by SKU, plus a secondary index by category.
+ * Each load gets a new {@link #version()}. Both the full listing and each category are also kept sorted by SKU, so
+ * pages can be cut with a keyset ("after this SKU") instead of an offset.
+ */
+public final class ProductCatalog {
+
+    private static final Comparator<ProductEntity> BY_SKU = Comparator.comparing(ProductEntity::getSku);
+
+    private final long version;
+    private final List<ProductEntity> products;
+    private final List<ProductEntity> productsInSkuOrder;
+    private final Map<String, ProductEntity> productsBySku;
+    private final Map<String, List<ProductEntity>> productsByCategory;
+    private final ProductSearchIndex searchIndex;
+
+    private ProductCatalog(long version,
+                           List<ProductEntity> products,
+                           List<ProductEntity> productsInSkuOrder,
+                           Map<String, ProductEntity> productsBySku,
+                           Map<String, List<ProductEntity>> productsByCategory,
+                           ProductSearchIndex searchIndex) {
+        this.version = version;
+        this.products = products;
+        this.productsInSkuOrder = productsInSkuOrder;
+        this.productsBySku = productsBySku;
+        this.productsByCategory = productsByCategory;
+        this.searchIndex = searchIndex;
+    }
+
+    public static ProductCatalog of(List<ProductEntity> products) {
+        var builder = builder();
+        products.forEach(builder::add);
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Accumulates products as they are streamed in; the first product seen for a SKU wins. Single use: the built
+     * catalog takes over the builder's index instead of copying it.
+     */
+    public static final class Builder {
+
+        private final Map<String, ProductEntity> bySku = new LinkedHashMap<>();
+        private long version;
+        private ProductCatalog previous;
+        private boolean built;
+
+        private Builder() {
+        }
+
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * The catalog this one replaces; unchanged products reuse its search analysis.
+         */
+        public Builder previous(ProductCatalog previous) {
+            this.previous = previous;
+            return this;
+        }
+
+        public Builder add(ProductEntity product) {
+            if (built) {
+                throw new IllegalStateException("Catalog already built");
+            }
+            bySku.putIfAbsent(product.getSku(), product);
+            return this;
+        }
+
+        public ProductCatalog build() {
+            built = true;
+            var inSkuOrder = new ArrayList<>(bySku.values());
+            inSkuOrder.sort(BY_SKU);
+            Map<String, List<ProductEntity>> byCategory = new HashMap<>();
+            for (ProductEntity product : inSkuOrder) {
+                if (product.getCategory() != null) {
+                    byCategory.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(product);
+                }
+            }
+            byCategory.replaceAll((category, categoryProducts) -> List.copyOf(categoryProducts));
+
+            var searchIndex = ProductSearchIndex.build(inSkuOrder, previous == null ? null : previous.searchIndex);
+
+            return new ProductCatalog(version,
+                    List.copyOf(bySku.values()),
+                    List.copyOf(inSkuOrder),
+                    Collections.unmodifiableMap(bySku),
+                    Map.copyOf(byCategory),
+                    searchIndex);
+        }
+    }
+
+    public List<ProductEntity> findAll() {
+        return products;
+    }
+
+    public Optional<ProductEntity> findBySku(String sku) {
+        return sku == null ? Optional.empty() : Optional.ofNullable(productsBySku.get(sku));
+    }
+
+    public Map<String, ProductEntity> findAllBySku(Collection<String> skus) {
+        Map<String, ProductEntity> found = new HashMap<>(Math.max(16, (int) (skus.size() / 0.75f) + 1));
+        for (String sku : skus) {
+            ProductEntity product = sku == null ? null : productsBySku.get(sku);
+            if (product != null) {
+                found.put(sku, product);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Products of a category, in SKU order.
+     */
+    public List<ProductEntity> findByCategory(String category) {
+        return category == null ? List.of() : productsByCategory.getOrDefault(category, List.of());
+    }
+
+    /**
+     * Up to {@code limit} products in SKU order, starting right after {@code afterSku} (or at the first one when
+     * {@code null}), optionally restricted to a category. The SKU need not exist any more, so cursors survive reloads.
+     */
+    public ProductPage findPage(String category, String afterSku, int limit) {
+        var candidates = category == null ? productsInSkuOrder : findByCategory(category);
+        int from = afterSku == null ? 0 : firstAfter(candidates, afterSku);
+        int to = (int) Math.min(candidates.size(), (long) from + limit);
+        return new ProductPage(version, candidates.subList(from, to), to < candidates.size());
+    }
+
+    /**
+     * Up to {@code limit} products matching {@code query}, most relevant first; see {@link ProductSearchIndex}.
+     */
+    public List<ProductEntity> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * How many products were tokenized for this catalog's search index; the others kept their previous analysis.
+     */
+    public int reindexed() {
+        return searchIndex.reanalyzed();
+    }
+
+    private static int firstAfter(List<ProductEntity> inSkuOrder, String sku) {
+        int low = 0;
+        int high = inSkuOrder.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (inSkuOrder.get(mid).getSku().compareTo(sku) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public Set<String> categories() {
+        return productsByCategory.keySet();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int size() {
+        return products.size();
+    }
+}
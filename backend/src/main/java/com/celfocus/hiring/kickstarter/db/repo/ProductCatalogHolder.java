@@ -0,0 +1,255 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.util.ProductsLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the current {@link ProductCatalog} snapshot.
+ * <p>
+ * The catalog comes from {@code catalog.file} when set, otherwise from the bundled {@code products.json}. A file
+ * catalog is watched: after a change settles for {@code catalog.reload.debounce} it is parsed and indexed on a
+ * background thread, then swapped in atomically. Readers always see one complete snapshot and never wait on a
+ * reload. A catalog that fails to parse is logged and the previous snapshot stays in place.
+ * <p>
+ * With {@code catalog.load-in-background}, the first catalog is not loaded during startup either: it is parsed and
+ * indexed on the reload thread, and {@link #current()} waits for it (or loads it itself, if that thread has not got to
+ * it yet). {@link #isLoaded()} tells readiness checks when it is in place. A first load that fails is tried again by
+ * the next {@link #current()}.
+ * <p>
+ * Every catalog put in place is announced with a {@link ProductCatalogPublishedEvent}.
+ */
+@Component
+public class ProductCatalogHolder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductCatalogHolder.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path catalogFile;
+    private final boolean watch;
+    private final Duration debounce;
+    private final boolean loadInBackground;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<ProductCatalog> current = new AtomicReference<>();
+    // Seeded from the clock so versions keep increasing across restarts; they are handed out as HTTP validators.
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis());
+    private final AtomicReference<FutureTask<ProductCatalog>> firstLoad = new AtomicReference<>(newFirstLoad());
+
+    private ScheduledExecutorService reloadExecutor;
+    private ScheduledFuture<?> pendingReload;
+    private WatchService watchService;
+
+    @Autowired
+    public ProductCatalogHolder(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${catalog.file:}") String catalogFile,
+                                @Value("${catalog.watch:true}") boolean watch,
+                                @Value("${catalog.reload.debounce:500ms}") Duration debounce,
+                                @Value("${catalog.load-in-background:false}") boolean loadInBackground) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.catalogFile = StringUtils.hasText(catalogFile) ? Path.of(catalogFile).toAbsolutePath() : null;
+        this.watch = watch && this.catalogFile != null;
+        this.debounce = debounce;
+        this.loadInBackground = loadInBackground;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Gauge.builder("catalog.version", current, catalog -> catalog.get() == null ? Double.NaN : catalog.get().version())
+                .description("Version of the product catalog being served")
+                .register(meterRegistry);
+        Gauge.builder("catalog.size", current, catalog -> catalog.get() == null ? Double.NaN : catalog.get().size())
+                .description("Products in the catalog being served")
+                .register(meterRegistry);
+
+        if (watch || loadInBackground) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "catalog-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        // queued ahead of any reload the watch schedules, so an older catalog never replaces a newer one
+        if (loadInBackground) {
+            reloadExecutor.execute(this::loadFirstQuietly);
+        } else {
+            awaitFirstLoad();
+        }
+
+        if (watch) {
+            watchService = FileSystems.getDefault().newWatchService();
+            catalogFile.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            Thread.ofPlatform().daemon().name("catalog-watch").start(this::watchCatalogFile);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    public ProductCatalog current() {
+        var catalog = current.get();
+        return catalog != null ? catalog : awaitFirstLoad();
+    }
+
+    /**
+     * Whether a catalog has been published, so that {@link #current()} returns without waiting.
+     */
+    public boolean isLoaded() {
+        return current.get() != null;
+    }
+
+    /**
+     * Loads and indexes the catalog on the calling thread, then publishes it.
+     *
+     * @return whether the new catalog was published
+     */
+    public boolean reload() {
+        var sample = Timer.start(meterRegistry);
+        try {
+            var catalog = load();
+            current.set(catalog);
+            sample.stop(reloadTimer("success"));
+            LOGGER.info("Product catalog version {} published with {} products ({} re-indexed)",
+                    catalog.version(), catalog.size(), catalog.reindexed());
+            eventPublisher.publishEvent(new ProductCatalogPublishedEvent(catalog));
+            return true;
+        } catch (RuntimeException e) {
+            sample.stop(reloadTimer("failure"));
+            var kept = current.get();
+            LOGGER.warn("Product catalog reload failed, keeping version {}", kept == null ? null : kept.version(), e);
+            return false;
+        }
+    }
+
+    private ProductCatalog loadFirst() {
+        var sample = Timer.start(meterRegistry);
+        try {
+            var catalog = load();
+            boolean published = current.compareAndSet(null, catalog);
+            long nanos = sample.stop(Timer.builder("catalog.load")
+                    .description("Time to parse and index the first product catalog")
+                    .register(meterRegistry));
+            LOGGER.info("Product catalog version {} loaded with {} products in {} ms",
+                    catalog.version(), catalog.size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+            if (published) {
+                eventPublisher.publishEvent(new ProductCatalogPublishedEvent(catalog));
+            }
+            return catalog;
+        } catch (RuntimeException e) {
+            LOGGER.error("Product catalog failed to load", e);
+            throw e;
+        }
+    }
+
+    private FutureTask<ProductCatalog> newFirstLoad() {
+        return new FutureTask<>(this::loadFirst);
+    }
+
+    private void loadFirstQuietly() {
+        try {
+            awaitFirstLoad();
+        } catch (IllegalStateException e) {
+            // logged by loadFirst; the next reader tries again
+        }
+    }
+
+    /**
+     * @throws IllegalStateException when the load failed; the next call tries again
+     */
+    private ProductCatalog awaitFirstLoad() {
+        var load = firstLoad.get();
+        // runs the load here unless the reload thread has started it or already finished it
+        load.run();
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the product catalog", e);
+        } catch (ExecutionException e) {
+            firstLoad.compareAndSet(load, newFirstLoad());
+            throw new IllegalStateException("Product catalog failed to load", e.getCause());
+        }
+    }
+
+    private ProductCatalog load() {
+        var builder = ProductCatalog.builder().version(versions.incrementAndGet()).previous(current.get());
+        if (catalogFile != null) {
+            ProductsLoader.forEachProduct(objectMapper, catalogFile, builder::add);
+        } else {
+            ProductsLoader.forEachProduct(objectMapper, builder::add);
+        }
+        return builder.build();
+    }
+
+    private Timer reloadTimer(String result) {
+        return Timer.builder("catalog.reload")
+                .description("Time to parse, index and publish a new product catalog")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private void watchCatalogFile() {
+        try {
+            while (true) {
+                var key = watchService.take();
+                boolean changed = key.pollEvents().stream()
+                        .anyMatch(event -> catalogFile.getFileName().equals(event.context()));
+                key.reset();
+                if (changed) {
+                    scheduleReload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private synchronized void scheduleReload() {
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+        pendingReload = reloadExecutor.schedule(this::reload, debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
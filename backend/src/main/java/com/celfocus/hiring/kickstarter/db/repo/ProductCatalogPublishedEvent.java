@@ -0,0 +1,7 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+/**
+ * Published by {@link ProductCatalogHolder} on the thread that loaded {@code catalog}, once it is being served.
+ */
+public record ProductCatalogPublishedEvent(ProductCatalog catalog) {
+}
@@ -2,14 +2,17 @@ package com.celfocus.hiring.kickstarter.db.repo;
 
 
 import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
-import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.domain.ProductPage;
 import com.celfocus.hiring.kickstarter.util.ProductsLoader;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.repository.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @org.springframework.stereotype.Repository
 public interface ProductRepository extends Repository<ProductEntity, String> {
@@ -17,28 +20,93 @@ public interface ProductRepository extends Repository<ProductEntity, String> {
 
     Optional<ProductEntity> findBySku(String sku);
 
+    Map<String, ProductEntity> findAllBySku(Collection<String> skus);
+
+    List<ProductEntity> findByCategory(String category);
+
+    /**
+     * A keyset page in SKU order; see {@link ProductCatalog#findPage(String, String, int)}.
+     */
+    ProductPage findPage(String category, String afterSku, int limit);
+
+    /**
+     * Full-text and prefix search; see {@link ProductCatalog#search(String, int)}.
+     */
+    List<ProductEntity> search(String query, int limit);
+
+    /**
+     * The catalog snapshot currently served; stays consistent however many reads are made against it.
+     */
+    ProductCatalog snapshot();
+
     static ProductRepository create(ObjectMapper objectMapper) {
         return new ProductRepositoryImpl(objectMapper);
     }
+
+    static ProductRepository create(ProductCatalogHolder catalogHolder) {
+        return new ProductRepositoryImpl(catalogHolder);
+    }
+
+    static ProductRepository create(List<ProductEntity> products) {
+        return new ProductRepositoryImpl(ProductCatalog.of(products));
+    }
 }
 
 class ProductRepositoryImpl implements ProductRepository {
 
-    private final List<ProductEntity> products;
+    private final Supplier<ProductCatalog> catalog;
+
+    @Autowired
+    public ProductRepositoryImpl(ProductCatalogHolder catalogHolder) {
+        this.catalog = catalogHolder::current;
+    }
+
+    public ProductRepositoryImpl(ObjectMapper objectMapper) {
+        this(loadCatalog(objectMapper));
+    }
+
+    ProductRepositoryImpl(ProductCatalog catalog) {
+        this.catalog = () -> catalog;
+    }
 
-    public ProductRepositoryImpl(@Autowired ObjectMapper objectMapper) {
-        products = ProductsLoader.loadProducts(objectMapper);
+    private static ProductCatalog loadCatalog(ObjectMapper objectMapper) {
+        var builder = ProductCatalog.builder();
+        ProductsLoader.forEachProduct(objectMapper, builder::add);
+        return builder.build();
     }
 
     @Override
     public List<ProductEntity> findAll() {
-        return products;
+        return catalog.get().findAll();
     }
 
     @Override
     public Optional<ProductEntity> findBySku(String sku) {
-        return products.stream()
-                .filter(product -> product.getSku().equals(sku))
-                .findFirst();
+        return catalog.get().findBySku(sku);
+    }
+
+    @Override
+    public Map<String, ProductEntity> findAllBySku(Collection<String> skus) {
+        return catalog.get().findAllBySku(skus);
+    }
+
+    @Override
+    public List<ProductEntity> findByCategory(String category) {
+        return catalog.get().findByCategory(category);
+    }
+
+    @Override
+    public ProductPage findPage(String category, String afterSku, int limit) {
+        return catalog.get().findPage(category, afterSku, limit);
+    }
+
+    @Override
+    public List<ProductEntity> search(String query, int limit) {
+        return catalog.get().search(query, limit);
+    }
+
+    @Override
+    public ProductCatalog snapshot() {
+        return catalog.get();
     }
 }
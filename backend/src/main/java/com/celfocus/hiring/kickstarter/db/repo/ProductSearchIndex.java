@@ -0,0 +1,373 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable inverted index over the name, category and description of a catalog's products, built alongside each
+ * {@link ProductCatalog}.
+ * <p>
+ * Terms are kept sorted, so a prefix is a contiguous range of term ids, and every product keeps its own sorted term
+ * ids, so "does this product match that term (or prefix)" is a binary search. A term's weight in a product is a
+ * field-weighted, saturated term frequency; at query time it is multiplied by the term's BM25 idf.
+ * <p>
+ * Complete query words must all match. The last word, unless followed by a separator, is a prefix. A query made of a
+ * prefix alone (the typeahead case) only looks at the best-weighted products of the most common matching terms,
+ * which keeps it bounded however large the catalog is; those results are approximate.
+ */
+final class ProductSearchIndex {
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int TOP_POSTINGS = 64;
+    private static final int MAX_EXPANSIONS = 32;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float TF_SATURATION = 1.2f;
+    private static final float PREFIX_MATCH_FACTOR = 0.8f;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final ProductEntity[] documents;
+    private final String[] terms;
+    private final float[] idf;
+    private final int[][] postings;
+    private final int[][] topPostings;
+    private final int[][] documentTerms;
+    private final float[][] documentWeights;
+    private final int reanalyzed;
+
+    private ProductSearchIndex(ProductEntity[] documents, String[] terms, float[] idf, int[][] postings,
+                               int[][] topPostings, int[][] documentTerms, float[][] documentWeights, int reanalyzed) {
+        this.documents = documents;
+        this.terms = terms;
+        this.idf = idf;
+        this.postings = postings;
+        this.topPostings = topPostings;
+        this.documentTerms = documentTerms;
+        this.documentWeights = documentWeights;
+        this.reanalyzed = reanalyzed;
+    }
+
+    /**
+     * Indexes {@code inSkuOrder}. Products whose name, category and description are unchanged since {@code previous}
+     * reuse its analysis instead of being tokenized again.
+     */
+    static ProductSearchIndex build(List<ProductEntity> inSkuOrder, ProductSearchIndex previous) {
+        int size = inSkuOrder.size();
+        var documents = inSkuOrder.toArray(new ProductEntity[0]);
+        var analyses = new Analysis[size];
+        var documentFrequencies = new HashMap<String, int[]>();
+        int reanalyzed = 0;
+        for (int doc = 0; doc < size; doc++) {
+            var analysis = previous == null ? null : previous.analysisOf(documents[doc]);
+            if (analysis == null) {
+                analysis = analyze(documents[doc]);
+                reanalyzed++;
+            }
+            analyses[doc] = analysis;
+            for (String term : analysis.terms) {
+                documentFrequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+            }
+        }
+
+        var terms = documentFrequencies.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        var termIds = new HashMap<String, Integer>(documentFrequencies.size() * 2);
+        var idf = new float[terms.length];
+        var postings = new int[terms.length][];
+        for (int id = 0; id < terms.length; id++) {
+            int df = documentFrequencies.get(terms[id])[0];
+            termIds.put(terms[id], id);
+            idf[id] = (float) Math.log(1 + (size - df + 0.5) / (df + 0.5));
+            postings[id] = new int[df];
+        }
+
+        var filled = new int[terms.length];
+        var weightedPostings = new long[terms.length][];
+        var documentTerms = new int[size][];
+        var documentWeights = new float[size][];
+        for (int doc = 0; doc < size; doc++) {
+            var analysis = analyses[doc];
+            var packed = new long[analysis.terms.length];
+            for (int i = 0; i < packed.length; i++) {
+                int id = termIds.get(analysis.terms[i]);
+                int weightBits = Float.floatToIntBits(analysis.weights[i]);
+                packed[i] = ((long) id << 32) | (weightBits & 0xffffffffL);
+                if (weightedPostings[id] == null) {
+                    weightedPostings[id] = new long[postings[id].length];
+                }
+                weightedPostings[id][filled[id]] = ((long) (Integer.MAX_VALUE - weightBits) << 32) | doc;
+                postings[id][filled[id]++] = doc;
+            }
+            Arrays.sort(packed);
+            documentTerms[doc] = new int[packed.length];
+            documentWeights[doc] = new float[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                documentTerms[doc][i] = (int) (packed[i] >>> 32);
+                documentWeights[doc][i] = Float.intBitsToFloat((int) packed[i]);
+            }
+        }
+
+        var topPostings = new int[terms.length][];
+        for (int id = 0; id < terms.length; id++) {
+            var byWeight = weightedPostings[id];
+            Arrays.sort(byWeight);
+            topPostings[id] = new int[Math.min(TOP_POSTINGS, byWeight.length)];
+            for (int i = 0; i < topPostings[id].length; i++) {
+                topPostings[id][i] = (int) byWeight[i];
+            }
+        }
+        return new ProductSearchIndex(documents, terms, idf, postings, topPostings, documentTerms, documentWeights, reanalyzed);
+    }
+
+    /**
+     * How many products had to be tokenized when this index was built, rather than reusing the previous analysis.
+     */
+    int reanalyzed() {
+        return reanalyzed;
+    }
+
+    /**
+     * Up to {@code limit} products matching {@code query}, best first; ties go to the lower SKU.
+     */
+    List<ProductEntity> search(String query, int limit) {
+        if (query == null || limit < 1) {
+            return List.of();
+        }
+        var words = tokenize(query);
+        boolean endsWithPrefix = !words.isEmpty() && Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        String prefix = endsWithPrefix ? words.remove(words.size() - 1) : null;
+
+        var required = new ArrayList<Integer>();
+        for (String word : words) {
+            if (word.length() < MIN_TERM_LENGTH) {
+                continue;
+            }
+            int id = Arrays.binarySearch(terms, word);
+            if (id < 0) {
+                return List.of();
+            }
+            if (!required.contains(id)) {
+                required.add(id);
+            }
+        }
+        int prefixFrom = prefix == null ? 0 : lowerBound(terms, prefix);
+        int prefixTo = prefix == null ? 0 : lowerBound(terms, prefix + Character.MAX_VALUE);
+        if ((prefix != null && prefixFrom == prefixTo) || (prefix == null && required.isEmpty())) {
+            return List.of();
+        }
+
+        var hits = new TopHits(limit);
+        if (required.isEmpty()) {
+            for (int doc : typeaheadCandidates(prefixFrom, prefixTo)) {
+                hits.offer(doc, prefixScore(doc, prefix, prefixFrom, prefixTo));
+            }
+        } else {
+            required.sort((a, b) -> Integer.compare(postings[a].length, postings[b].length));
+            candidates:
+            for (int doc : postings[required.get(0)]) {
+                float score = 0;
+                for (int id : required) {
+                    int at = Arrays.binarySearch(documentTerms[doc], id);
+                    if (at < 0) {
+                        continue candidates;
+                    }
+                    score += documentWeights[doc][at] * idf[id];
+                }
+                if (prefix != null) {
+                    float prefixScore = prefixScore(doc, prefix, prefixFrom, prefixTo);
+                    if (prefixScore == 0) {
+                        continue;
+                    }
+                    score += prefixScore;
+                }
+                hits.offer(doc, score);
+            }
+        }
+        return hits.toList(documents);
+    }
+
+    private int[] typeaheadCandidates(int prefixFrom, int prefixTo) {
+        var expansions = new PriorityQueue<Integer>((a, b) -> Integer.compare(postings[a].length, postings[b].length));
+        for (int id = prefixFrom; id < prefixTo; id++) {
+            expansions.offer(id);
+            if (expansions.size() > MAX_EXPANSIONS) {
+                expansions.poll();
+            }
+        }
+        int count = 0;
+        for (int id : expansions) {
+            count += topPostings[id].length;
+        }
+        var candidates = new int[count];
+        count = 0;
+        for (int id : expansions) {
+            System.arraycopy(topPostings[id], 0, candidates, count, topPostings[id].length);
+            count += topPostings[id].length;
+        }
+        Arrays.sort(candidates);
+        int distinct = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if (i == 0 || candidates[i] != candidates[i - 1]) {
+                candidates[distinct++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, distinct);
+    }
+
+    private float prefixScore(int doc, String prefix, int prefixFrom, int prefixTo) {
+        var ids = documentTerms[doc];
+        float best = 0;
+        for (int i = lowerBound(ids, prefixFrom); i < ids.length && ids[i] < prefixTo; i++) {
+            float score = documentWeights[doc][i] * idf[ids[i]];
+            if (terms[ids[i]].length() > prefix.length()) {
+                score *= PREFIX_MATCH_FACTOR;
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    private Analysis analysisOf(ProductEntity product) {
+        int doc = lowerBound(documents, product.getSku());
+        if (doc == documents.length || !documents[doc].getSku().equals(product.getSku())) {
+            return null;
+        }
+        var indexed = documents[doc];
+        if (!Objects.equals(indexed.getName(), product.getName())
+                || !Objects.equals(indexed.getCategory(), product.getCategory())
+                || !Objects.equals(indexed.getDescription(), product.getDescription())) {
+            return null;
+        }
+        var ids = documentTerms[doc];
+        var reused = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            reused[i] = terms[ids[i]];
+        }
+        return new Analysis(reused, documentWeights[doc]);
+    }
+
+    private static Analysis analyze(ProductEntity product) {
+        var weights = new LinkedHashMap<String, Float>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        var terms = new String[weights.size()];
+        var termWeights = new float[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            terms[i] = entry.getKey();
+            termWeights[i++] = entry.getValue();
+        }
+        return new Analysis(terms, termWeights);
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+        if (text == null) {
+            return;
+        }
+        var frequencies = new HashMap<String, Integer>();
+        for (String term : tokenize(text)) {
+            if (term.length() >= MIN_TERM_LENGTH) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        frequencies.forEach((term, tf) -> weights.merge(term, fieldWeight * tf / (tf + TF_SATURATION), Float::sum));
+    }
+
+    static List<String> tokenize(String text) {
+        var folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        var tokens = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(ProductEntity[] inSkuOrder, String sku) {
+        int low = 0;
+        int high = inSkuOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (inSkuOrder[mid].getSku().compareTo(sku) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int at = Arrays.binarySearch(sorted, key);
+        return at < 0 ? -at - 1 : at;
+    }
+
+    private record Analysis(String[] terms, float[] weights) {
+    }
+
+    /**
+     * Bounded min-heap of the best hits seen so far.
+     */
+    private static final class TopHits {
+
+        private final int limit;
+        private final PriorityQueue<long[]> heap;
+
+        TopHits(int limit) {
+            this.limit = limit;
+            // Worst hit on top: lowest score, then highest document (SKU).
+            this.heap = new PriorityQueue<>(limit + 1, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+        }
+
+        void offer(int doc, float score) {
+            if (score <= 0) {
+                return;
+            }
+            heap.offer(new long[]{Float.floatToIntBits(score), doc});
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<ProductEntity> toList(ProductEntity[] documents) {
+            var ranked = new ProductEntity[heap.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = documents[(int) heap.poll()[1]];
+            }
+            return List.of(ranked);
+        }
+    }
+}
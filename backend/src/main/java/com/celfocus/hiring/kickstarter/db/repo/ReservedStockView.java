@@ -0,0 +1,7 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+/**
+ * Units of a SKU held across all carts.
+ */
+public record ReservedStockView(String sku, Long quantity) {
+}
@@ -0,0 +1,7 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+/**
+ * Stock of one SKU: units on hand and units reserved by carts.
+ */
+public record StockLevel(String sku, int onHand, int reserved) {
+}
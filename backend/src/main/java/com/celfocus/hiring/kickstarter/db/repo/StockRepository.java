@@ -0,0 +1,16 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.StockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface StockRepository extends JpaRepository<StockEntity, String>, StockRepositoryCustom {
+
+    @Query("""
+            select new com.celfocus.hiring.kickstarter.db.repo.ReservedStockView(i.itemId, sum(i.quantity))
+            from CartItemEntity i
+            group by i.itemId""")
+    List<ReservedStockView> findReservedQuantities();
+}
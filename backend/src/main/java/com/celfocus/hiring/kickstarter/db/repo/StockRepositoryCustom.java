@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface StockRepositoryCustom {
+
+    /**
+     * Inserts or overwrites the checkpoint of every given SKU, as one JDBC batch.
+     */
+    void checkpoint(Collection<StockLevel> levels, Instant checkpointedAt);
+}
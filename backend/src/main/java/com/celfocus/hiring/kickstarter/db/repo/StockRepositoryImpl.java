@@ -0,0 +1,40 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+
+class StockRepositoryImpl implements StockRepositoryCustom {
+
+    // Only the inventory checkpoint writes this table, so MERGE never races with itself.
+    private static final String MERGE_STOCK = """
+            MERGE INTO TB_STOCK (SKU, ON_HAND, RESERVED, CHECKPOINTED_AT) KEY (SKU)
+            VALUES (:sku, :onHand, :reserved, :checkpointedAt)""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StockRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void checkpoint(Collection<StockLevel> levels, Instant checkpointedAt) {
+        var timestamp = Timestamp.from(checkpointedAt);
+        var batch = new SqlParameterSource[levels.size()];
+        int i = 0;
+        for (StockLevel level : levels) {
+            batch[i++] = new MapSqlParameterSource()
+                    .addValue("sku", level.sku())
+                    .addValue("onHand", level.onHand())
+                    .addValue("reserved", level.reserved())
+                    .addValue("checkpointedAt", timestamp);
+        }
+        jdbcTemplate.batchUpdate(MERGE_STOCK, batch);
+    }
+}
@@ -0,0 +1,157 @@
+package com.celfocus.hiring.kickstarter.db.shard;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves every cart to the shard it belongs on, after {@code cart.shards.count} changed.
+ * <p>
+ * With {@code cart.shards.rebalance-on-startup}, it runs once the application has started and stock has been
+ * recovered, before readiness reports it accepting traffic: start once with the new count, and with
+ * {@code cart.shards.previous-count} set to the old one when shrinking, so that the shards being dropped are drained
+ * too. A cart is copied to its new shard, then deleted from the old one at the version it was copied at.
+ * <p>
+ * If a run is interrupted in between, the next one finds an identical copy and only deletes the original, handing
+ * its units back to {@link Inventory}, which counted both copies when it recovered. A user with a different cart on
+ * the shard they belong on is left alone, with a warning, rather than losing either cart.
+ */
+@Component
+@ConditionalOnExpression(ShardingConfiguration.ENABLED)
+public class CartShardRebalancer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CartShardRebalancer.class);
+
+    static final String FIND_CARTS_AFTER = "SELECT ID, USER_ID FROM TB_CART WHERE ID > :afterId ORDER BY ID LIMIT :limit";
+
+    private static final int PAGE_SIZE = 500;
+
+    private final ShardedCartStore cartStore;
+    private final Inventory inventory;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean rebalanceOnStartup;
+    private final Counter moved;
+
+    @Autowired
+    public CartShardRebalancer(ShardedCartStore cartStore,
+                               Inventory inventory,
+                               NamedParameterJdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${cart.shards.rebalance-on-startup:false}") boolean rebalanceOnStartup) {
+        this.cartStore = cartStore;
+        this.inventory = inventory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebalanceOnStartup = rebalanceOnStartup;
+        this.moved = Counter.builder("cart.shards.moved")
+                .description("Carts moved to the shard they belong on")
+                .register(meterRegistry);
+    }
+
+    // readiness only turns to accepting traffic once the listeners of this event have returned
+    @EventListener(ApplicationReadyEvent.class)
+    void rebalanceOnStartup() {
+        if (rebalanceOnStartup) {
+            inventory.awaitRecovery();
+            LOGGER.info("Moved {} carts to their shards", rebalance());
+        }
+    }
+
+    /**
+     * Moves the carts stored on a shard they do not belong on. Not safe against concurrent changes to those carts.
+     *
+     * @return the number of carts moved
+     */
+    public int rebalance() {
+        var shards = cartStore.shards();
+        int carts = 0;
+        for (int source = 0; source < shards.size(); source++) {
+            long afterId = 0;
+            for (var page = findCarts(source, afterId); !page.isEmpty(); page = findCarts(source, afterId)) {
+                for (StoredCart cart : page) {
+                    int target = cartStore.shardIndexOf(cart.userId());
+                    if (target != source && move(cart.userId(), shards.get(source), shards.get(target))) {
+                        carts++;
+                    }
+                }
+                afterId = page.get(page.size() - 1).id();
+            }
+        }
+        moved.increment(carts);
+        return carts;
+    }
+
+    private List<StoredCart> findCarts(int shard, long afterId) {
+        var params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", PAGE_SIZE);
+        return CartShards.on(shard, () -> jdbcTemplate.query(FIND_CARTS_AFTER, params,
+                (row, rowNum) -> new StoredCart(row.getLong("ID"), row.getString("USER_ID"))));
+    }
+
+    /**
+     * @return whether the cart now lives on {@code target} only; a cart without lines is not copied, just deleted
+     */
+    private boolean move(String username, CartStore source, CartStore target) {
+        var lines = source.findCartLines(username);
+        if (lines.isEmpty()) {
+            return false;
+        }
+        boolean copy = lines.get(0).itemId() != null;
+        boolean copiedBefore = false;
+        if (copy && target.findVersion(username).isPresent()) {
+            if (!quantities(lines).equals(quantities(target.findCartLines(username)))) {
+                LOGGER.warn("{} has another cart on the shard they belong on, left this one in place", username);
+                return false;
+            }
+            copiedBefore = true;
+        } else if (copy) {
+            var prices = new LinkedHashMap<String, BigDecimal>();
+            for (CartLineView line : lines) {
+                prices.put(line.itemId(), line.price());
+            }
+            target.addItems(username, quantities(lines), prices, null);
+        }
+        try {
+            var cleared = source.clearCart(username, new CartVersion(lines.get(0).cartId(), lines.get(0).cartVersion()));
+            if (copiedBefore) {
+                cleared.forEach(line -> inventory.release(line.itemId(), line.quantity()));
+            }
+            return copy;
+        } catch (StaleCartException e) {
+            LOGGER.warn("Cart of {} changed while being moved, left a copy on both shards", username);
+            return false;
+        }
+    }
+
+    private static Map<String, Integer> quantities(List<CartLineView> lines) {
+        var quantities = new LinkedHashMap<String, Integer>();
+        for (CartLineView line : lines) {
+            if (line.itemId() != null) {
+                quantities.put(line.itemId(), line.quantity());
+            }
+        }
+        return quantities;
+    }
+
+    private record StoredCart(long id, String userId) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.celfocus.hiring.kickstarter.db.shard;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Which cart shard the current thread's database work goes to, and which shard a user's cart belongs in.
+ */
+public final class CartShards {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private CartShards() {
+    }
+
+    /**
+     * Runs {@code work} with every connection it opens going to {@code shard}. Must be called outside a transaction,
+     * which would already hold a connection to another database, so that {@code work} can start its own.
+     */
+    public static <T> T on(int shard, Supplier<T> work) {
+        var previous = CURRENT.get();
+        if (!Objects.equals(previous, shard) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to cart shard " + shard + " inside a transaction");
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * The shard set by {@link #on(int, Supplier)}, or {@code null} outside of it.
+     */
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * The shard, out of {@code shards}, that the user's cart belongs in.
+     * <p>
+     * Jump consistent hashing: going from {@code n} to {@code n + 1} shards moves only the {@code 1 / (n + 1)} of carts
+     * that the new shard takes over, where a plain modulo would move nearly all of them.
+     */
+    public static int shardOf(String username, int shards) {
+        long key = mix(username.hashCode());
+        long bucket = -1;
+        long next = 0;
+        while (next < shards) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    // String.hashCode is stable across JVMs but clusters similar names; spread it over all 64 bits.
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
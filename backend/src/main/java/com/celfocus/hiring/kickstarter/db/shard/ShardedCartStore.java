@@ -0,0 +1,200 @@
+package com.celfocus.hiring.kickstarter.db.shard;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView;
+import com.celfocus.hiring.kickstarter.db.repo.ReservedStockView;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.JpaCartStore;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@link CartStore} that keeps each cart on the shard its username hashes to, see {@link CartShards#shardOf}.
+ * <p>
+ * A cart lives on one shard only, so every mutation is a transaction of {@link JpaCartStore} on that shard's database
+ * and carts on different shards never wait for each other. Work that goes over all carts runs shard by shard.
+ */
+@Repository
+@Primary
+@ConditionalOnExpression(ShardingConfiguration.ENABLED)
+public class ShardedCartStore implements CartStore {
+
+    private final int count;
+    private final List<Shard> shards = new ArrayList<>();
+
+    @Autowired
+    public ShardedCartStore(JpaCartStore jpaCartStore,
+                            @Value("${cart.shards.count:1}") int count,
+                            @Value("${cart.shards.previous-count:0}") int previousCount) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("cart.shards.count must be positive");
+        }
+        this.count = count;
+        for (int shard = 0; shard < Math.max(count, previousCount); shard++) {
+            shards.add(new Shard(shard, jpaCartStore));
+        }
+    }
+
+    @Override
+    public CartVersion addItem(String username, String itemId, Supplier<BigDecimal> price, CartVersion expected) {
+        return shardOf(username).addItem(username, itemId, price, expected);
+    }
+
+    @Override
+    public CartVersion addItems(String username, Map<String, Integer> quantities, Map<String, BigDecimal> prices, CartVersion expected) {
+        return shardOf(username).addItems(username, quantities, prices, expected);
+    }
+
+    @Override
+    public Optional<Removal> removeItem(String username, String itemId, CartVersion expected) {
+        return shardOf(username).removeItem(username, itemId, expected);
+    }
+
+    @Override
+    public List<CartLineView> clearCart(String username, CartVersion expected) {
+        return shardOf(username).clearCart(username, expected);
+    }
+
+    @Override
+    public List<CartLineView> findCartLines(String username) {
+        return shardOf(username).findCartLines(username);
+    }
+
+    @Override
+    public Optional<CartSummaryView> findSummary(String username) {
+        return shardOf(username).findSummary(username);
+    }
+
+    @Override
+    public Optional<CartVersion> findVersion(String username) {
+        return shardOf(username).findVersion(username);
+    }
+
+    @Override
+    public List<ReservedStockView> findReservedQuantities() {
+        var reserved = new HashMap<String, Long>();
+        for (Shard shard : shards) {
+            shard.findReservedQuantities().forEach(view -> reserved.merge(view.sku(), view.quantity(), Long::sum));
+        }
+        var views = new ArrayList<ReservedStockView>(reserved.size());
+        reserved.forEach((sku, quantity) -> views.add(new ReservedStockView(sku, quantity)));
+        return views;
+    }
+
+    @Override
+    public List<ExpiredCartView> findExpired(Instant cutoff, int limit) {
+        var expired = new ArrayList<ExpiredCartView>();
+        for (Shard shard : shards) {
+            expired.addAll(shard.findExpired(cutoff, limit));
+        }
+        expired.sort(Comparator.comparing(ExpiredCartView::updatedAt));
+        return expired.subList(0, Math.min(limit, expired.size()));
+    }
+
+    /**
+     * All or none only within one shard, so the carts must all belong to the same one; go through {@link #shards()}
+     * to delete carts everywhere.
+     */
+    @Override
+    public List<CartLineView> deleteCarts(List<ExpiredCartView> carts) {
+        if (carts.isEmpty()) {
+            return List.of();
+        }
+        int shard = shardIndexOf(carts.get(0).userId());
+        if (carts.stream().anyMatch(cart -> shardIndexOf(cart.userId()) != shard)) {
+            throw new IllegalArgumentException("Carts of different shards cannot be deleted together");
+        }
+        return shards.get(shard).deleteCarts(carts);
+    }
+
+    /**
+     * Every shard, including those only kept to be drained after the shard count went down. A shard serves whichever
+     * carts are stored on it, whether or not they belong there.
+     */
+    @Override
+    public List<CartStore> shards() {
+        return List.copyOf(shards);
+    }
+
+    /**
+     * The shard that serves the user's cart.
+     */
+    public int shardIndexOf(String username) {
+        return CartShards.shardOf(username, count);
+    }
+
+    private Shard shardOf(String username) {
+        return shards.get(shardIndexOf(username));
+    }
+
+    /**
+     * The carts stored on one shard's database.
+     */
+    private record Shard(int index, CartStore store) implements CartStore {
+
+        @Override
+        public CartVersion addItem(String username, String itemId, Supplier<BigDecimal> price, CartVersion expected) {
+            return CartShards.on(index, () -> store.addItem(username, itemId, price, expected));
+        }
+
+        @Override
+        public CartVersion addItems(String username, Map<String, Integer> quantities, Map<String, BigDecimal> prices, CartVersion expected) {
+            return CartShards.on(index, () -> store.addItems(username, quantities, prices, expected));
+        }
+
+        @Override
+        public Optional<Removal> removeItem(String username, String itemId, CartVersion expected) {
+            return CartShards.on(index, () -> store.removeItem(username, itemId, expected));
+        }
+
+        @Override
+        public List<CartLineView> clearCart(String username, CartVersion expected) {
+            return CartShards.on(index, () -> store.clearCart(username, expected));
+        }
+
+        @Override
+        public List<CartLineView> findCartLines(String username) {
+            return CartShards.on(index, () -> store.findCartLines(username));
+        }
+
+        @Override
+        public Optional<CartSummaryView> findSummary(String username) {
+            return CartShards.on(index, () -> store.findSummary(username));
+        }
+
+        @Override
+        public Optional<CartVersion> findVersion(String username) {
+            return CartShards.on(index, () -> store.findVersion(username));
+        }
+
+        @Override
+        public List<ReservedStockView> findReservedQuantities() {
+            return CartShards.on(index, store::findReservedQuantities);
+        }
+
+        @Override
+        public List<ExpiredCartView> findExpired(Instant cutoff, int limit) {
+            return CartShards.on(index, () -> store.findExpired(cutoff, limit));
+        }
+
+        @Override
+        public List<CartLineView> deleteCarts(List<ExpiredCartView> carts) {
+            return CartShards.on(index, () -> store.deleteCarts(carts));
+        }
+    }
+}
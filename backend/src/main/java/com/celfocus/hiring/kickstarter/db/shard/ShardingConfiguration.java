@@ -0,0 +1,85 @@
+package com.celfocus.hiring.kickstarter.db.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Wiring for cart sharding, on with {@code cart.store=jpa} and more than one shard: carts are spread by username over
+ * {@code cart.shards.count} databases. Every shard, 0 included, is the database at {@code cart.shards.url} with
+ * {@code {shard}} replaced by its number, and gets the cart tables only; the main database keeps everything else. So
+ * all carts are as durable as that URL makes them, whatever the main database is, and carts stored in the main
+ * database before sharding was turned on are not read.
+ * <p>
+ * The application's one {@code DataSource} routes each connection to the shard set by {@link CartShards#on}, and to
+ * the main database otherwise, so JPA, its transaction manager and the cart repositories work unchanged on every
+ * shard. Shards from {@code cart.shards.previous-count}, when larger, stay reachable so that
+ * {@link CartShardRebalancer} can move their carts out.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnExpression(ShardingConfiguration.ENABLED)
+public class ShardingConfiguration implements DisposableBean {
+
+    static final String ENABLED = "'${cart.store:jpa}' == 'jpa' and (${cart.shards.count:1} > 1 or ${cart.shards.previous-count:0} > 1)";
+
+    private static final String SHARD_PLACEHOLDER = "{shard}";
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    @Bean
+    DataSource dataSource(DataSourceProperties properties,
+                          @Value("${cart.shards.count:1}") int count,
+                          @Value("${cart.shards.previous-count:0}") int previousCount,
+                          @Value("${cart.shards.url}") String url) {
+        if (!url.contains(SHARD_PLACEHOLDER)) {
+            throw new IllegalArgumentException("cart.shards.url must contain " + SHARD_PLACEHOLDER);
+        }
+        var main = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSources.add(main);
+        var shards = new HashMap<Object, Object>();
+        for (int shard = 0; shard < Math.max(count, previousCount); shard++) {
+            var dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url.replace(SHARD_PLACEHOLDER, Integer.toString(shard)))
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .build();
+            dataSource.setPoolName("cart-shard-" + shard);
+            dataSources.add(dataSource);
+            new ResourceDatabasePopulator(new ClassPathResource("cart-shard-schema.sql")).execute(dataSource);
+            shards.put(shard, dataSource);
+        }
+        var routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shards);
+        routing.setDefaultTargetDataSource(main);
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Override
+    public void destroy() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    private static final class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return CartShards.current();
+        }
+    }
+}
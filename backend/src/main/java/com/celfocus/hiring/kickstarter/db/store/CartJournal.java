@@ -0,0 +1,248 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of records in memory-mapped segment files of a fixed size, plus the snapshots that make the
+ * segments before them redundant.
+ * <p>
+ * Records are framed as {@code [int length][int crc32c][payload]} and the length is written last, so a record torn by
+ * a crash is either absent or fails its checksum; recovery stops right before it and wipes the rest of the segment.
+ * An append is a copy into the mapped segment, which survives the process crashing as soon as it returns; with
+ * {@code fsync} it is also forced to the device before returning, to survive the machine crashing.
+ * <p>
+ * Not thread-safe: callers serialize {@link #append(ByteBuffer)} and {@link #roll()}. {@link #writeSnapshot(long, Stream)}
+ * only touches files before the segment it is given, so it may run alongside appends.
+ */
+final class CartJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CartJournal.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int FRAME_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final CRC32C crc = new CRC32C();
+
+    private long segment;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    CartJournal(Path directory, int segmentSize, boolean fsync) {
+        if (segmentSize <= FRAME_HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal segments must be larger than " + FRAME_HEADER_BYTES + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Passes the records of the newest snapshot, then those of every segment written since, to {@code records}, and
+     * positions appends after the last intact record.
+     *
+     * @throws IllegalStateException when the newest snapshot is corrupt
+     */
+    void recover(Consumer<ByteBuffer> records) throws IOException {
+        Files.createDirectories(directory);
+        for (Path leftover : list(TEMPORARY_SUFFIX)) {
+            Files.delete(leftover);
+        }
+        var snapshots = list(SNAPSHOT_SUFFIX);
+        var snapshot = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+        long first = snapshot == null ? 1 : sequence(snapshot);
+        if (snapshot != null) {
+            if (!readFrames(ByteBuffer.wrap(Files.readAllBytes(snapshot)), records, true)) {
+                throw new IllegalStateException("Corrupt snapshot " + snapshot);
+            }
+        }
+
+        var segments = list(SEGMENT_SUFFIX).stream().filter(path -> sequence(path) >= first).toList();
+        if (segments.isEmpty()) {
+            open(first);
+            return;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            open(sequence(segments.get(i)));
+            if (!readFrames(buffer, records, false)) {
+                // a torn record: nothing after it can be trusted, and the next append goes where it was
+                wipe(buffer, position);
+                for (Path later : segments.subList(i + 1, segments.size())) {
+                    Files.delete(later);
+                }
+                LOGGER.warn("Journal segment {} ends with a torn record at byte {}, discarded it and {} later segments",
+                        segments.get(i).getFileName(), position, segments.size() - i - 1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends the payload's remaining bytes as one record, rolling to a new segment when it does not fit.
+     */
+    void append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (FRAME_HEADER_BYTES + length > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + length + " bytes does not fit a segment of " + segmentSize);
+        }
+        if (position + FRAME_HEADER_BYTES + length > buffer.capacity()) {
+            roll();
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        buffer.put(position + FRAME_HEADER_BYTES, payload, payload.position(), length);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(position, length);
+        if (fsync) {
+            buffer.force(position, FRAME_HEADER_BYTES + length);
+        }
+        position += FRAME_HEADER_BYTES + length;
+    }
+
+    /**
+     * Directs appends to a new segment.
+     *
+     * @return the new segment's sequence number; a snapshot of everything appended so far covers the segments before it
+     */
+    long roll() {
+        try {
+            open(segment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segment;
+    }
+
+    /**
+     * Writes {@code records} as the snapshot of every segment before {@code segment}, then deletes those segments and
+     * older snapshots. The snapshot replaces the previous one atomically, once it is fully on disk.
+     */
+    void writeSnapshot(long segment, Stream<ByteBuffer> records) throws IOException {
+        var snapshot = directory.resolve(name(SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+        var temporary = directory.resolve(snapshot.getFileName() + TEMPORARY_SUFFIX);
+        var checksum = new CRC32C();
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (var iterator = records.iterator(); iterator.hasNext(); ) {
+                var record = iterator.next();
+                checksum.reset();
+                checksum.update(record.duplicate());
+                out.writeInt(record.remaining());
+                out.writeInt((int) checksum.getValue());
+                out.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+            }
+            out.writeInt(0);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path older : list(SNAPSHOT_SUFFIX)) {
+            if (sequence(older) < segment) {
+                Files.delete(older);
+            }
+        }
+        for (Path covered : list(SEGMENT_SUFFIX)) {
+            if (sequence(covered) < segment) {
+                Files.delete(covered);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+    }
+
+    private void open(long sequence) throws IOException {
+        var path = directory.resolve(name(SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // a segment written with a larger segment size keeps its size
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        }
+        segment = sequence;
+        position = 0;
+    }
+
+    /**
+     * Reads frames from the start of {@code frames} up to a zero length, leaving {@link #position} after the last
+     * intact one.
+     *
+     * @param endMarkerRequired whether running out of bytes before a zero length counts as torn; a full segment has none
+     * @return {@code false} when a torn or corrupt frame was found
+     */
+    private boolean readFrames(ByteBuffer frames, Consumer<ByteBuffer> records, boolean endMarkerRequired) {
+        position = 0;
+        while (position + Integer.BYTES <= frames.capacity()) {
+            int length = frames.getInt(position);
+            if (length == 0) {
+                return true;
+            }
+            if (length < 0 || length > frames.capacity() - position - FRAME_HEADER_BYTES) {
+                return false;
+            }
+            var payload = frames.slice(position + FRAME_HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != frames.getInt(position + Integer.BYTES)) {
+                return false;
+            }
+            records.accept(payload);
+            position += FRAME_HEADER_BYTES + length;
+        }
+        return !endMarkerRequired;
+    }
+
+    private static void wipe(MappedByteBuffer segment, int from) {
+        var zeros = new byte[8192];
+        for (int i = from; i < segment.capacity(); i += zeros.length) {
+            segment.put(i, zeros, 0, Math.min(zeros.length, segment.capacity() - i));
+        }
+        segment.force();
+    }
+
+    private List<Path> list(String suffix) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long sequence(Path path) {
+        var name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    // zero-padded, so that sorting file names sorts by sequence
+    private static String name(String prefix, long sequence, String suffix) {
+        return prefix + String.format("%019d", sequence) + suffix;
+    }
+}
@@ -0,0 +1,38 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.sql.SQLException;
+import java.util.function.Function;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CartQuantityOverflowException extends RuntimeException {
+
+    private static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+
+    public CartQuantityOverflowException(String username) {
+        super("Cart quantity out of range: " + username);
+    }
+
+    /**
+     * Whether {@code e} comes from the database refusing a line quantity or cart total past its column's range, as
+     * adding to {@code QUANTITY} or {@code ITEM_COUNT} in SQL does instead of wrapping.
+     */
+    public static boolean isOutOfRange(Throwable e) {
+        return isOutOfRange(e, cause -> cause instanceof SQLException sql ? sql.getSQLState() : null);
+    }
+
+    /**
+     * As {@link #isOutOfRange(Throwable)}, for drivers whose exceptions are not {@link SQLException}s: {@code sqlState}
+     * gives the SQL state of a cause, or {@code null} when it has none.
+     */
+    public static boolean isOutOfRange(Throwable e, Function<Throwable, String> sqlState) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (NUMERIC_VALUE_OUT_OF_RANGE.equals(sqlState.apply(cause))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView;
+import com.celfocus.hiring.kickstarter.db.repo.ReservedStockView;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Storage engine for carts, selected with {@code cart.store}: {@link JpaCartStore} ({@code jpa}, the default), sharded
+ * over several databases with {@code cart.shards.count}, or {@link JournalCartStore} ({@code journal}).
+ * <p>
+ * Every method is atomic on its own: a mutation either applies completely, bumping the cart's version once, or not at
+ * all. A mutation that is given an {@code expected} version only applies while the cart is still at it, and throws
+ * {@link StaleCartException} otherwise.
+ */
+public interface CartStore {
+
+    /**
+     * Adds one unit of the item, creating the cart and the line when missing.
+     *
+     * @param price unit price for a new line, only asked for when the cart has no line for the item yet
+     * @return the cart's new version
+     */
+    CartVersion addItem(String username, String itemId, Supplier<BigDecimal> price, CartVersion expected);
+
+    /**
+     * Adds each quantity to the matching line, creating the cart and the lines that are missing.
+     *
+     * @param quantities units to add, by item id
+     * @param prices     unit price of every item in {@code quantities}, by item id, for the lines to create; existing
+     *                   lines keep the price they were added at
+     * @return the cart's new version
+     */
+    CartVersion addItems(String username, Map<String, Integer> quantities, Map<String, BigDecimal> prices, CartVersion expected);
+
+    /**
+     * Deletes the item's line.
+     *
+     * @return the deleted line and the cart's new version, empty when the cart has no such line
+     */
+    Optional<Removal> removeItem(String username, String itemId, CartVersion expected);
+
+    /**
+     * Deletes the cart and its lines.
+     *
+     * @return the lines as they were deleted
+     */
+    List<CartLineView> clearCart(String username, CartVersion expected);
+
+    /**
+     * The cart joined with its lines, one row per line or a single row without item for a cart without lines; empty
+     * for a user without a cart.
+     */
+    List<CartLineView> findCartLines(String username);
+
+    Optional<CartSummaryView> findSummary(String username);
+
+    Optional<CartVersion> findVersion(String username);
+
+    /**
+     * Units of every SKU held across all carts.
+     */
+    List<ReservedStockView> findReservedQuantities();
+
+    /**
+     * Carts last changed before {@code cutoff}, least recently changed first.
+     */
+    List<ExpiredCartView> findExpired(Instant cutoff, int limit);
+
+    /**
+     * Deletes the carts and their lines, all of them or none: throws {@link StaleCartException} when any cart is no
+     * longer at the version it was found at.
+     * <p>
+     * All or none holds within one transaction, so on a store with several {@link #shards()} the carts must all be on
+     * the same shard, and {@link IllegalArgumentException} is thrown otherwise. Callers deleting carts across the
+     * store call this on each shard with that shard's carts, as found by its {@link #findExpired}.
+     *
+     * @return the lines as they were deleted
+     */
+    List<CartLineView> deleteCarts(List<ExpiredCartView> carts);
+
+    /**
+     * The independent parts of this store, each with its own transactions, for work that goes over every cart. A store
+     * that is not partitioned is its only shard.
+     */
+    default List<CartStore> shards() {
+        return List.of(this);
+    }
+
+    /**
+     * A line deleted by {@link #removeItem(String, String, CartVersion)}, with the cart's version after the deletion.
+     */
+    record Removal(CartLineView line, CartVersion version) {
+    }
+}
@@ -0,0 +1,482 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView;
+import com.celfocus.hiring.kickstarter.db.repo.ReservedStockView;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * {@link CartStore} that keeps every cart in memory and makes each mutation durable with one sequential append to a
+ * memory-mapped {@link CartJournal}, instead of several SQL statements.
+ * <p>
+ * Mutations are serialized by a single lock: each checks the cart's version, appends one record carrying the lines it
+ * changes and the cart's new version, then applies that same record to publish an immutable copy of the cart. Replay
+ * goes through the same code, so recovered state is exactly what was served. Reads never lock.
+ * <p>
+ * Every {@code cart.journal.snapshot-interval}, and on shutdown, all carts are written to a snapshot and the journal
+ * segments it covers are deleted. On startup the newest snapshot is loaded and the journal written after it replayed.
+ */
+@Repository
+@ConditionalOnProperty(name = "cart.store", havingValue = "journal")
+public class JournalCartStore implements CartStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalCartStore.class);
+
+    private static final byte LINES = 1;
+    private static final byte CLEAR = 2;
+    private static final byte NEXT_CART_ID = 3;
+    private static final byte DELETE_CARTS = 4;
+
+    private final Path directory;
+    private final CartJournal journal;
+    private final Duration snapshotInterval;
+    private final Timer snapshotTimer;
+    private final Clock clock;
+
+    private final Map<String, StoredCart> carts = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object snapshotLock = new Object();
+    // guarded by lock
+    private final RecordBuffer record = new RecordBuffer();
+    private long nextCartId = 1;
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    @Autowired
+    public JournalCartStore(@Value("${cart.journal.directory:data/cart-journal}") Path directory,
+                            @Value("${cart.journal.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${cart.journal.snapshot-interval:5m}") Duration snapshotInterval,
+                            @Value("${cart.journal.fsync:false}") boolean fsync,
+                            MeterRegistry meterRegistry) {
+        this(directory, segmentSize, snapshotInterval, fsync, meterRegistry, Clock.systemUTC());
+    }
+
+    JournalCartStore(Path directory, DataSize segmentSize, Duration snapshotInterval, boolean fsync,
+                     MeterRegistry meterRegistry, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+        this.journal = new CartJournal(directory, Math.toIntExact(segmentSize.toBytes()), fsync);
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotTimer = Timer.builder("cart.journal.snapshot")
+                .description("Time to write all carts to a snapshot and delete the journal segments it covers")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        try {
+            journal.recover(this::apply);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover carts from " + directory, e);
+        }
+        LOGGER.info("Recovered {} carts from {}", carts.size(), directory);
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "cart-journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        snapshotExecutor.shutdownNow();
+        snapshotQuietly();
+        lock.lock();
+        try {
+            journal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CartVersion addItem(String username, String itemId, Supplier<BigDecimal> price, CartVersion expected) {
+        lock.lock();
+        try {
+            var cart = current(username, expected);
+            var line = cart == null ? null : cart.lines().get(itemId);
+            long linePrice = line != null ? line.priceMinorUnits() : MinorUnits.of(price.get());
+            var changed = Map.of(itemId, new Line(linePrice, line != null ? Math.addExact(line.quantity(), 1) : 1));
+            return commitLines(username, cart, changed);
+        } catch (ArithmeticException e) {
+            throw new CartQuantityOverflowException(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CartVersion addItems(String username, Map<String, Integer> quantities, Map<String, BigDecimal> prices, CartVersion expected) {
+        lock.lock();
+        try {
+            var cart = current(username, expected);
+            var changed = new LinkedHashMap<String, Line>(quantities.size() * 2);
+            for (var entry : quantities.entrySet()) {
+                if (entry.getValue() <= 0) {
+                    // a zero quantity is how a record deletes a line
+                    throw new IllegalArgumentException("Quantity must be positive: " + entry.getKey());
+                }
+                var line = cart == null ? null : cart.lines().get(entry.getKey());
+                long linePrice = line != null ? line.priceMinorUnits() : MinorUnits.of(prices.get(entry.getKey()));
+                int quantity = line != null ? Math.addExact(line.quantity(), entry.getValue()) : entry.getValue();
+                changed.put(entry.getKey(), new Line(linePrice, quantity));
+            }
+            return commitLines(username, cart, changed);
+        } catch (ArithmeticException e) {
+            throw new CartQuantityOverflowException(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Removal> removeItem(String username, String itemId, CartVersion expected) {
+        lock.lock();
+        try {
+            var cart = current(username, expected);
+            var line = cart == null ? null : cart.lines().get(itemId);
+            if (line == null) {
+                return Optional.empty();
+            }
+            var version = beginLines(username, cart, 1);
+            record.putString(itemId).putLong(0).putInt(0);
+            commit();
+            return Optional.of(new Removal(line.toView(cart.id(), null, username, itemId), version));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<CartLineView> clearCart(String username, CartVersion expected) {
+        lock.lock();
+        try {
+            var cart = current(username, expected);
+            if (cart == null) {
+                return List.of();
+            }
+            record.clear().putByte(CLEAR).putString(username);
+            commit();
+            var removed = new ArrayList<CartLineView>(cart.lines().size());
+            cart.lines().forEach((itemId, line) -> removed.add(line.toView(cart.id(), null, username, itemId)));
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<CartLineView> findCartLines(String username) {
+        var cart = carts.get(username);
+        if (cart == null) {
+            return List.of();
+        }
+        if (cart.lines().isEmpty()) {
+            return List.of(new CartLineView(cart.id(), cart.version(), username, null, null, null));
+        }
+        var lines = new ArrayList<CartLineView>(cart.lines().size());
+        cart.lines().forEach((itemId, line) -> lines.add(line.toView(cart.id(), cart.version(), username, itemId)));
+        return lines;
+    }
+
+    @Override
+    public Optional<CartSummaryView> findSummary(String username) {
+        return Optional.ofNullable(carts.get(username))
+                .map(cart -> new CartSummaryView(username, cart.itemCount(), cart.subtotalMinorUnits()));
+    }
+
+    @Override
+    public Optional<CartVersion> findVersion(String username) {
+        return Optional.ofNullable(carts.get(username)).map(cart -> new CartVersion(cart.id(), cart.version()));
+    }
+
+    @Override
+    public List<ReservedStockView> findReservedQuantities() {
+        var reserved = new HashMap<String, Long>();
+        for (StoredCart cart : carts.values()) {
+            cart.lines().forEach((itemId, line) -> reserved.merge(itemId, (long) line.quantity(), Long::sum));
+        }
+        var views = new ArrayList<ReservedStockView>(reserved.size());
+        reserved.forEach((sku, quantity) -> views.add(new ReservedStockView(sku, quantity)));
+        return views;
+    }
+
+    @Override
+    public List<ExpiredCartView> findExpired(Instant cutoff, int limit) {
+        long cutoffMillis = cutoff.toEpochMilli();
+        return carts.entrySet().stream()
+                .filter(entry -> entry.getValue().updatedAt() < cutoffMillis)
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().updatedAt()))
+                .limit(limit)
+                .map(entry -> new ExpiredCartView(entry.getValue().id(), entry.getValue().version(), entry.getKey(),
+                        Instant.ofEpochMilli(entry.getValue().updatedAt())))
+                .toList();
+    }
+
+    /**
+     * One record for all the carts, so a crash never leaves part of them deleted.
+     */
+    @Override
+    public List<CartLineView> deleteCarts(List<ExpiredCartView> expired) {
+        lock.lock();
+        try {
+            var deleted = new ArrayList<StoredCart>(expired.size());
+            for (ExpiredCartView cart : expired) {
+                deleted.add(current(cart.userId(), new CartVersion(cart.cartId(), cart.cartVersion())));
+            }
+            record.clear().putByte(DELETE_CARTS).putInt(expired.size());
+            expired.forEach(cart -> record.putString(cart.userId()));
+            commit();
+            var removed = new ArrayList<CartLineView>();
+            for (int i = 0; i < deleted.size(); i++) {
+                var cart = deleted.get(i);
+                var username = expired.get(i).userId();
+                cart.lines().forEach((itemId, line) -> removed.add(line.toView(cart.id(), null, username, itemId)));
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every cart to a snapshot, then deletes the journal segments it covers.
+     *
+     * @return the number of carts written
+     */
+    public int snapshot() {
+        return snapshotTimer.record(() -> {
+            synchronized (snapshotLock) {
+                long segment;
+                long firstFreeCartId;
+                Map<String, StoredCart> state;
+                lock.lock();
+                try {
+                    segment = journal.roll();
+                    firstFreeCartId = nextCartId;
+                    state = new HashMap<>(carts);
+                } finally {
+                    lock.unlock();
+                }
+                var buffer = new RecordBuffer();
+                var records = Stream.concat(
+                        Stream.of(new RecordBuffer().clear().putByte(NEXT_CART_ID).putLong(firstFreeCartId).flip()),
+                        state.entrySet().stream().map(entry -> encodeCart(buffer, entry.getKey(), entry.getValue())));
+                try {
+                    journal.writeSnapshot(segment, records);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write a snapshot to " + directory, e);
+                }
+                return state.size();
+            }
+        });
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cart snapshot failed, will retry", e);
+        }
+    }
+
+    private StoredCart current(String username, CartVersion expected) {
+        var cart = carts.get(username);
+        if (expected != null && (cart == null || cart.id() != expected.cartId() || cart.version() != expected.version())) {
+            throw new StaleCartException(username);
+        }
+        return cart;
+    }
+
+    /**
+     * Starts a record that sets {@code count} lines of the cart, a new one when {@code cart} is {@code null}.
+     *
+     * @return the version the cart will be at
+     */
+    private CartVersion beginLines(String username, StoredCart cart, int count) {
+        var version = cart == null ? new CartVersion(nextCartId, 1) : new CartVersion(cart.id(), cart.version() + 1);
+        record.clear().putByte(LINES).putString(username).putLong(version.cartId()).putLong(version.version())
+                .putLong(clock.millis()).putInt(count);
+        return version;
+    }
+
+    /**
+     * Appends and applies a record that sets the {@code changed} lines, once the cart's totals are known to fit.
+     *
+     * @throws ArithmeticException when the item count or subtotal would go past its range
+     */
+    private CartVersion commitLines(String username, StoredCart cart, Map<String, Line> changed) {
+        int itemCount = cart == null ? 0 : cart.itemCount();
+        long subtotal = cart == null ? 0 : cart.subtotalMinorUnits();
+        for (var entry : changed.entrySet()) {
+            var previous = cart == null ? null : cart.lines().get(entry.getKey());
+            var line = entry.getValue();
+            if (previous != null) {
+                itemCount -= previous.quantity();
+                subtotal -= previous.quantity() * previous.priceMinorUnits();
+            }
+            itemCount = Math.addExact(itemCount, line.quantity());
+            subtotal = Math.addExact(subtotal, Math.multiplyExact(line.quantity(), line.priceMinorUnits()));
+        }
+        var version = beginLines(username, cart, changed.size());
+        changed.forEach((itemId, line) -> record.putString(itemId).putLong(line.priceMinorUnits()).putInt(line.quantity()));
+        commit();
+        return version;
+    }
+
+    private void commit() {
+        var payload = record.flip();
+        journal.append(payload.duplicate());
+        apply(payload);
+    }
+
+    private static ByteBuffer encodeCart(RecordBuffer buffer, String username, StoredCart cart) {
+        buffer.clear().putByte(LINES).putString(username).putLong(cart.id()).putLong(cart.version())
+                .putLong(cart.updatedAt()).putInt(cart.lines().size());
+        cart.lines().forEach((itemId, line) -> buffer.putString(itemId).putLong(line.priceMinorUnits()).putInt(line.quantity()));
+        return buffer.flip();
+    }
+
+    // The only place carts change, whether the record was just appended or is being replayed.
+    private void apply(ByteBuffer payload) {
+        byte type = payload.get();
+        switch (type) {
+            case LINES -> {
+                var username = RecordBuffer.getString(payload);
+                long cartId = payload.getLong();
+                long version = payload.getLong();
+                long updatedAt = payload.getLong();
+                var cart = carts.get(username);
+                var lines = cart == null ? new LinkedHashMap<String, Line>() : new LinkedHashMap<>(cart.lines());
+                int itemCount = cart == null ? 0 : cart.itemCount();
+                long subtotal = cart == null ? 0 : cart.subtotalMinorUnits();
+                // commitLines checked these totals fit before the record was appended
+                for (int count = payload.getInt(); count > 0; count--) {
+                    var itemId = RecordBuffer.getString(payload);
+                    long price = payload.getLong();
+                    int quantity = payload.getInt();
+                    var previous = quantity == 0 ? lines.remove(itemId) : lines.put(itemId, new Line(price, quantity));
+                    if (previous != null) {
+                        itemCount -= previous.quantity();
+                        subtotal -= previous.quantity() * previous.priceMinorUnits();
+                    }
+                    itemCount += quantity;
+                    subtotal += quantity * price;
+                }
+                carts.put(username, new StoredCart(cartId, version, Collections.unmodifiableMap(lines), itemCount, subtotal, updatedAt));
+                nextCartId = Math.max(nextCartId, cartId + 1);
+            }
+            case CLEAR -> carts.remove(RecordBuffer.getString(payload));
+            case NEXT_CART_ID -> nextCartId = Math.max(nextCartId, payload.getLong());
+            case DELETE_CARTS -> {
+                for (int count = payload.getInt(); count > 0; count--) {
+                    carts.remove(RecordBuffer.getString(payload));
+                }
+            }
+            default -> throw new IllegalStateException("Unknown cart journal record type " + type);
+        }
+    }
+
+    // updatedAt is in epoch milliseconds, recorded with every change so that replay keeps it
+    private record StoredCart(long id, long version, Map<String, Line> lines, int itemCount, long subtotalMinorUnits, long updatedAt) {
+    }
+
+    private record Line(long priceMinorUnits, int quantity) {
+
+        CartLineView toView(long cartId, Long cartVersion, String username, String itemId) {
+            return new CartLineView(cartId, cartVersion, username, itemId, MinorUnits.toDecimal(priceMinorUnits), quantity);
+        }
+    }
+
+    /**
+     * A growable heap buffer to encode one record into.
+     */
+    private static final class RecordBuffer {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(256);
+
+        RecordBuffer clear() {
+            buffer.clear();
+            return this;
+        }
+
+        RecordBuffer putByte(byte value) {
+            ensureRemaining(Byte.BYTES).put(value);
+            return this;
+        }
+
+        RecordBuffer putInt(int value) {
+            ensureRemaining(Integer.BYTES).putInt(value);
+            return this;
+        }
+
+        RecordBuffer putLong(long value) {
+            ensureRemaining(Long.BYTES).putLong(value);
+            return this;
+        }
+
+        RecordBuffer putString(String value) {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureRemaining(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+            return this;
+        }
+
+        ByteBuffer flip() {
+            return buffer.flip();
+        }
+
+        static String getString(ByteBuffer payload) {
+            var bytes = new byte[payload.getInt()];
+            payload.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer ensureRemaining(int bytes) {
+            if (buffer.remaining() < bytes) {
+                var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer = grown.put(buffer.flip());
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.repo.ExpiredCartView;
+import com.celfocus.hiring.kickstarter.db.repo.ReservedStockView;
+import com.celfocus.hiring.kickstarter.db.repo.StockRepository;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@link CartStore} over the {@code TB_CART} and {@code TB_CART_ITEM} tables, one transaction per mutation.
+ */
+@Repository
+@ConditionalOnProperty(name = "cart.store", havingValue = "jpa", matchIfMissing = true)
+@Transactional
+public class JpaCartStore implements CartStore {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final StockRepository stockRepository;
+
+    @Autowired
+    public JpaCartStore(CartRepository cartRepository, CartItemRepository cartItemRepository, StockRepository stockRepository) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.stockRepository = stockRepository;
+    }
+
+    @Override
+    public CartVersion addItem(String username, String itemId, Supplier<BigDecimal> price, CartVersion expected) {
+        try {
+            var linePrice = cartItemRepository.incrementQuantity(username, itemId, 1);
+            if (linePrice.isPresent()) {
+                return updateTotals(username, 1, MinorUnits.of(linePrice.get()), expected);
+            }
+
+            var newLinePrice = price.get();
+            var cartId = cartRepository.findOrCreateCartId(username);
+            for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS; attempt++) {
+                if (cartItemRepository.insertItem(cartId, itemId, newLinePrice, 1)) {
+                    return updateTotals(username, 1, MinorUnits.of(newLinePrice), expected);
+                }
+                linePrice = cartItemRepository.incrementQuantity(username, itemId, 1);
+                if (linePrice.isPresent()) {
+                    return updateTotals(username, 1, MinorUnits.of(linePrice.get()), expected);
+                }
+            }
+            throw new RuntimeException("Could not add item to cart");
+        } catch (DataAccessException e) {
+            throw outOfRange(username, e);
+        }
+    }
+
+    @Override
+    public CartVersion addItems(String username, Map<String, Integer> quantities, Map<String, BigDecimal> prices, CartVersion expected) {
+        try {
+            var linePrices = cartItemRepository.addItems(cartRepository.findOrCreateCartId(username), quantities, prices);
+            int units = 0;
+            long amount = 0;
+            for (var entry : quantities.entrySet()) {
+                units = Math.addExact(units, entry.getValue());
+                amount = Math.addExact(amount, Math.multiplyExact(entry.getValue(), MinorUnits.of(linePrices.get(entry.getKey()))));
+            }
+            return updateTotals(username, units, amount, expected);
+        } catch (DataAccessException e) {
+            throw outOfRange(username, e);
+        }
+    }
+
+    @Override
+    public Optional<Removal> removeItem(String username, String itemId, CartVersion expected) {
+        var removed = cartItemRepository.removeItem(username, itemId);
+        if (removed.isEmpty()) {
+            // nothing changed, so there is no version to bump; a conditional removal is still checked
+            if (expected != null && !cartRepository.findVersionByUserId(username).map(expected::equals).orElse(false)) {
+                throw new StaleCartException(username);
+            }
+            return Optional.empty();
+        }
+        var line = removed.get();
+        var version = updateTotals(username, -line.quantity(), -Math.multiplyExact(line.quantity(), MinorUnits.of(line.price())), expected);
+        return Optional.of(new Removal(line, version));
+    }
+
+    @Override
+    public List<CartLineView> clearCart(String username, CartVersion expected) {
+        var lines = cartItemRepository.removeItems(username);
+        if (expected == null) {
+            cartRepository.deleteByUserId(username);
+        } else if (cartRepository.deleteByUserIdAndVersion(username, expected.cartId(), expected.version()) == 0) {
+            throw new StaleCartException(username);
+        }
+        return lines;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<CartLineView> findCartLines(String username) {
+        return cartRepository.findCartLinesByUserId(username);
+    }
+
+    /**
+     * Read from the cart row alone.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<CartSummaryView> findSummary(String username) {
+        return cartRepository.findSummaryByUserId(username);
+    }
+
+    /**
+     * Read from the cart row alone.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<CartVersion> findVersion(String username) {
+        return cartRepository.findVersionByUserId(username);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ReservedStockView> findReservedQuantities() {
+        return stockRepository.findReservedQuantities();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<ExpiredCartView> findExpired(Instant cutoff, int limit) {
+        return cartRepository.findExpired(cutoff, Limit.of(limit));
+    }
+
+    /**
+     * Two statements whatever the number of carts; a short count on the version-guarded delete rolls the lines back.
+     */
+    @Override
+    public List<CartLineView> deleteCarts(List<ExpiredCartView> carts) {
+        var userIds = new HashMap<Long, String>();
+        carts.forEach(cart -> userIds.put(cart.cartId(), cart.userId()));
+        var lines = cartItemRepository.removeItemsOfCarts(userIds);
+        var versions = carts.stream().map(cart -> new CartVersion(cart.cartId(), cart.cartVersion())).toList();
+        if (cartRepository.deleteCarts(versions) < carts.size()) {
+            throw new StaleCartException(carts.stream().map(ExpiredCartView::userId).collect(Collectors.joining(", ")));
+        }
+        return lines;
+    }
+
+    // No row means the cart is not at the expected version or, for an unconditional change, that a concurrent clear
+    // deleted it mid-mutation; only the first is a failed precondition.
+    private CartVersion updateTotals(String username, int units, long amountMinorUnits, CartVersion expected) {
+        return cartRepository.addToTotals(username, units, amountMinorUnits, expected)
+                .orElseThrow(() -> expected != null
+                        ? new StaleCartException(username)
+                        : new IllegalStateException("Cart deleted while being updated: " + username));
+    }
+
+    // The database refuses a QUANTITY or ITEM_COUNT past INTEGER's range instead of wrapping it.
+    private static RuntimeException outOfRange(String username, DataAccessException e) {
+        return CartQuantityOverflowException.isOutOfRange(e) ? new CartQuantityOverflowException(username) : e;
+    }
+}
@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class StaleCartException extends RuntimeException {
+
+    public StaleCartException(String username) {
+        super("Cart changed since it was read: " + username);
+    }
+}
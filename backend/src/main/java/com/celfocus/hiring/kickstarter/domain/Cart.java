@@ -3,8 +3,10 @@ package com.celfocus.hiring.kickstarter.domain;
 import java.util.List;
 
 public class Cart<T extends CartItem> {
+    private Long id;
     private String userId;
     private List<T> items;
+    private long version;
 
 
     public List<T> getItems() {
@@ -15,6 +17,14 @@ public class Cart<T extends CartItem> {
         this.items = items;
     }
 
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -22,4 +32,19 @@ public class Cart<T extends CartItem> {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * The cart's identity and version together; a cart that is cleared and created again starts over with a new id.
+     */
+    public CartVersion getCartVersion() {
+        return new CartVersion(id, version);
+    }
 }
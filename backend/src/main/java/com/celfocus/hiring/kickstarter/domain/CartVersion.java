@@ -0,0 +1,8 @@
+package com.celfocus.hiring.kickstarter.domain;
+
+/**
+ * A cart as of one mutation: the version alone restarts at zero when a cleared cart is created again, so the cart id
+ * is part of it.
+ */
+public record CartVersion(long cartId, long version) {
+}
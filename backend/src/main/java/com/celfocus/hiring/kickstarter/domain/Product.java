@@ -17,6 +17,10 @@ public class Product {
 
     private String imageUrl;
 
+    private String category;
+
+    private Integer quantity;
+
     public Product() {
         super();
     }
@@ -94,6 +98,35 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    public Product category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Product quantity(Integer quantity) {
+        this.quantity = quantity;
+        return this;
+    }
+
+    /**
+     * Units on hand, or {@code null} when the product's stock is not tracked.
+     */
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,13 @@
+package com.celfocus.hiring.kickstarter.domain;
+
+import java.util.List;
+
+/**
+ * One keyset page of the catalog, cut from the catalog version it reports.
+ */
+public record ProductPage(long catalogVersion, List<? extends Product> products, boolean hasMore) {
+
+    public String lastSku() {
+        return products.isEmpty() ? null : products.get(products.size() - 1).getSku();
+    }
+}
@@ -0,0 +1,399 @@
+package com.celfocus.hiring.kickstarter.inventory;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.entity.StockEntity;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.db.repo.ReservedStockView;
+import com.celfocus.hiring.kickstarter.db.repo.StockLevel;
+import com.celfocus.hiring.kickstarter.db.repo.StockRepository;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory stock levels with one lock-free counter per SKU.
+ * <p>
+ * A SKU's on-hand stock is the {@code quantity} the catalog gives it; SKUs without one are not tracked. Carts reserve
+ * units when items are added and release them when items are removed, with a compare-and-set on that SKU's counter
+ * only: no database row is locked and no other SKU is touched, so a hot SKU costs a contended cache line rather than
+ * a queue behind a lock. A reservation made inside a transaction is handed back if the transaction rolls back, and a
+ * release waits for the removal to commit.
+ * <p>
+ * Every {@code inventory.checkpoint.interval}, on-hand changes from a reloaded catalog are applied and the counters
+ * that changed are written to {@code TB_STOCK}. On startup the checkpoint is read back and reconciled with the
+ * quantities actually sitting in carts, which are the durable record of what is reserved; whatever moved since the
+ * last checkpoint is counted in {@code inventory.recovery.drift}. With {@code catalog.load-in-background}, recovery
+ * runs on the checkpoint thread, after the catalog it reads is loaded, rather than during startup; stock calls made
+ * before it finishes wait for it, and {@link #isRecovered()} tells readiness checks when it has. A recovery that
+ * fails, say because that catalog failed to load, is tried again by the next stock call or checkpoint.
+ */
+@Component
+public class Inventory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Inventory.class);
+
+    private final ProductRepository productRepository;
+    private final StockRepository stockRepository;
+    private final CartStore cartStore;
+    private final MeterRegistry meterRegistry;
+    private final Duration checkpointInterval;
+
+    private final Map<String, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Counter rejected;
+    private final Counter excessReleases;
+    private final Timer checkpointTimer;
+    private final boolean recoverInBackground;
+    private final AtomicReference<FutureTask<Void>> recovery = new AtomicReference<>(newRecovery());
+
+    private ScheduledExecutorService checkpointExecutor;
+
+    @Autowired
+    public Inventory(ProductRepository productRepository,
+                     StockRepository stockRepository,
+                     CartStore cartStore,
+                     MeterRegistry meterRegistry,
+                     @Value("${inventory.checkpoint.interval:10s}") Duration checkpointInterval,
+                     @Value("${catalog.load-in-background:false}") boolean recoverInBackground) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.cartStore = cartStore;
+        this.meterRegistry = meterRegistry;
+        this.checkpointInterval = checkpointInterval;
+        this.recoverInBackground = recoverInBackground;
+        this.rejected = Counter.builder("inventory.reservations.rejected")
+                .description("Reservations refused for lack of stock")
+                .register(meterRegistry);
+        this.excessReleases = Counter.builder("inventory.release.excess")
+                .description("Units released beyond what was reserved, a sign of a release counted twice")
+                .register(meterRegistry);
+        this.checkpointTimer = Timer.builder("inventory.checkpoint")
+                .description("Time to write changed stock counters to the database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!recoverInBackground) {
+            awaitRecovery();
+        }
+        Gauge.builder("inventory.skus.out_of_stock", counters, c -> c.values().stream().filter(s -> s.available() <= 0).count())
+                .description("Tracked SKUs with no stock left to reserve")
+                .register(meterRegistry);
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "inventory-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (recoverInBackground) {
+            checkpointExecutor.execute(this::recoverQuietly);
+        }
+        long intervalMillis = checkpointInterval.toMillis();
+        checkpointExecutor.scheduleWithFixedDelay(this::checkpointQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        checkpointExecutor.shutdownNow();
+        if (isRecovered()) {
+            checkpointQuietly();
+        }
+    }
+
+    /**
+     * Whether stock levels have been recovered, so that stock calls no longer wait for it.
+     */
+    public boolean isRecovered() {
+        return recovery.get().state() == Future.State.SUCCESS;
+    }
+
+    /**
+     * Reserves {@code quantity} units of {@code sku}. Within a transaction, the units come back if it rolls back.
+     *
+     * @throws OutOfStockException when fewer units are available
+     */
+    public void reserve(String sku, int quantity) {
+        var counter = counter(sku);
+        if (counter == null) {
+            return;
+        }
+        if (!counter.tryReserve(quantity)) {
+            rejected.increment();
+            throw new OutOfStockException(sku);
+        }
+        releaseOnRollback(Map.of(sku, quantity));
+    }
+
+    /**
+     * Reserves every quantity, or none of them.
+     *
+     * @throws OutOfStockException for the first SKU that has too few units available
+     */
+    public void reserve(Map<String, Integer> quantities) {
+        var reserved = new LinkedHashMap<String, Integer>();
+        for (var entry : quantities.entrySet()) {
+            var counter = counter(entry.getKey());
+            if (counter == null) {
+                continue;
+            }
+            if (!counter.tryReserve(entry.getValue())) {
+                reserved.forEach((sku, quantity) -> counters.get(sku).release(quantity));
+                rejected.increment();
+                throw new OutOfStockException(entry.getKey());
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        releaseOnRollback(reserved);
+    }
+
+    /**
+     * Releases {@code quantity} units of {@code sku}; within a transaction, once it commits.
+     */
+    public void release(String sku, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseNow(sku, quantity);
+                }
+            });
+        } else {
+            releaseNow(sku, quantity);
+        }
+    }
+
+    /**
+     * Units of {@code sku} that can still be reserved, or empty when its stock is not tracked.
+     */
+    public OptionalInt available(String sku) {
+        var counter = counter(sku);
+        return counter == null ? OptionalInt.empty() : OptionalInt.of(counter.available());
+    }
+
+    /**
+     * Applies catalog on-hand changes, then writes the counters that changed since the previous checkpoint.
+     *
+     * @return the number of SKUs written
+     */
+    public int checkpoint() {
+        awaitRecovery();
+        return checkpointTimer.record(() -> {
+            for (ProductEntity product : productRepository.findAll()) {
+                if (product.getQuantity() != null) {
+                    counters.computeIfAbsent(product.getSku(), sku -> new StockCounter(product.getQuantity()))
+                            .adjustOnHand(product.getQuantity());
+                }
+            }
+            var levels = new ArrayList<StockLevel>();
+            counters.forEach((sku, counter) -> {
+                if (counter.takeDirty()) {
+                    levels.add(new StockLevel(sku, counter.onHand, counter.reserved.get()));
+                }
+            });
+            if (!levels.isEmpty()) {
+                try {
+                    stockRepository.checkpoint(levels, Instant.now());
+                } catch (RuntimeException e) {
+                    levels.forEach(level -> counters.get(level.sku()).dirty = true);
+                    throw e;
+                }
+            }
+            return levels.size();
+        });
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Stock checkpoint failed, will retry", e);
+        }
+    }
+
+    private FutureTask<Void> newRecovery() {
+        return new FutureTask<>(this::recoverCounters, null);
+    }
+
+    private void recoverQuietly() {
+        try {
+            awaitRecovery();
+        } catch (IllegalStateException e) {
+            LOGGER.error("Stock recovery failed, will retry", e.getCause());
+        }
+    }
+
+    /**
+     * Waits until stock levels are recovered.
+     *
+     * @throws IllegalStateException when recovery failed; the next call tries again
+     */
+    public void awaitRecovery() {
+        var current = recovery.get();
+        // runs recovery here unless another thread has started it or already finished it
+        current.run();
+        try {
+            current.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stock recovery", e);
+        } catch (ExecutionException e) {
+            recovery.compareAndSet(current, newRecovery());
+            throw new IllegalStateException("Stock recovery failed", e.getCause());
+        }
+    }
+
+    private void recoverCounters() {
+        // whatever a failed attempt left behind
+        counters.clear();
+        var checkpoints = new HashMap<String, StockEntity>();
+        for (StockEntity stock : stockRepository.findAll()) {
+            checkpoints.put(stock.getSku(), stock);
+        }
+        var held = new HashMap<String, Integer>();
+        for (ReservedStockView reservation : cartStore.findReservedQuantities()) {
+            held.put(reservation.sku(), Math.toIntExact(reservation.quantity()));
+        }
+
+        long drift = 0;
+        for (ProductEntity product : productRepository.findAll()) {
+            if (product.getQuantity() == null) {
+                continue;
+            }
+            var counter = new StockCounter(product.getQuantity());
+            int reserved = held.getOrDefault(product.getSku(), 0);
+            counter.reserved.set(reserved);
+            var checkpoint = checkpoints.get(product.getSku());
+            if (checkpoint != null) {
+                drift += Math.abs(checkpoint.getReserved() - reserved);
+                counter.dirty = checkpoint.getReserved() != reserved || checkpoint.getOnHand() != counter.onHand;
+            }
+            counters.put(product.getSku(), counter);
+        }
+        Counter.builder("inventory.recovery.drift")
+                .description("Reserved units that differed between the last checkpoint and the carts at startup")
+                .register(meterRegistry)
+                .increment(drift);
+        LOGGER.info("Recovered stock for {} SKUs from {} checkpoints, {} reserved units of drift", counters.size(), checkpoints.size(), drift);
+    }
+
+    private StockCounter counter(String sku) {
+        awaitRecovery();
+        var counter = counters.get(sku);
+        if (counter != null) {
+            return counter;
+        }
+        var quantity = productRepository.findBySku(sku).map(ProductEntity::getQuantity).orElse(null);
+        return quantity == null ? null : counters.computeIfAbsent(sku, s -> new StockCounter(quantity));
+    }
+
+    private void releaseNow(String sku, int quantity) {
+        awaitRecovery();
+        var counter = counters.get(sku);
+        if (counter != null) {
+            int excess = counter.release(quantity);
+            if (excess > 0) {
+                excessReleases.increment(excess);
+                LOGGER.warn("Released {} units of {} with only {} reserved", quantity, sku, quantity - excess);
+            }
+        }
+    }
+
+    private void releaseOnRollback(Map<String, Integer> reserved) {
+        if (reserved.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    reserved.forEach(Inventory.this::releaseNow);
+                }
+            }
+        });
+    }
+
+    private static final class StockCounter {
+
+        private final AtomicInteger reserved = new AtomicInteger();
+        private volatile int onHand;
+        private volatile boolean dirty = true;
+
+        StockCounter(int onHand) {
+            this.onHand = onHand;
+        }
+
+        int available() {
+            return onHand - reserved.get();
+        }
+
+        boolean tryReserve(int quantity) {
+            int current;
+            do {
+                current = reserved.get();
+                if (onHand - current < quantity) {
+                    return false;
+                }
+            } while (!reserved.compareAndSet(current, current + quantity));
+            dirty = true;
+            return true;
+        }
+
+        /**
+         * @return the units released beyond those reserved, which the counter drops instead of going negative
+         */
+        int release(int quantity) {
+            int current;
+            do {
+                current = reserved.get();
+            } while (!reserved.compareAndSet(current, Math.max(0, current - quantity)));
+            dirty = true;
+            return Math.max(0, quantity - current);
+        }
+
+        // Only the checkpoint thread changes on-hand stock.
+        void adjustOnHand(int quantity) {
+            if (onHand != quantity) {
+                onHand = quantity;
+                dirty = true;
+            }
+        }
+
+        boolean takeDirty() {
+            if (!dirty) {
+                return false;
+            }
+            dirty = false;
+            return true;
+        }
+    }
+}
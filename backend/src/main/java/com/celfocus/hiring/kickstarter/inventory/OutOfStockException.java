@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.inventory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OutOfStockException extends RuntimeException {
+
+    public OutOfStockException(String sku) {
+        super("Item out of stock: " + sku);
+    }
+}
@@ -0,0 +1,40 @@
+package com.celfocus.hiring.kickstarter.metrics;
+
+/**
+ * Counts the entities Hibernate loads and the flushes it performs on the current thread between {@link #start()} and
+ * {@link #stop()}.
+ */
+public final class EntityEventCounter {
+
+    private static final ThreadLocal<int[]> COUNTS = new ThreadLocal<>();
+
+    private EntityEventCounter() {
+    }
+
+    public static void start() {
+        COUNTS.set(new int[2]);
+    }
+
+    public static void entityLoaded() {
+        int[] counts = COUNTS.get();
+        if (counts != null) {
+            counts[0]++;
+        }
+    }
+
+    public static void flushed() {
+        int[] counts = COUNTS.get();
+        if (counts != null) {
+            counts[1]++;
+        }
+    }
+
+    public static Counts stop() {
+        int[] counts = COUNTS.get();
+        COUNTS.remove();
+        return counts == null ? new Counts(0, 0) : new Counts(counts[0], counts[1]);
+    }
+
+    public record Counts(int entityLoads, int flushes) {
+    }
+}
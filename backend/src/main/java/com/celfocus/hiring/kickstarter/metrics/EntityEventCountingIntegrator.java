@@ -0,0 +1,43 @@
+package com.celfocus.hiring.kickstarter.metrics;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Reports every entity load and every flush to {@link EntityEventCounter}, so they can be recorded per request
+ * alongside the SQL statements.
+ */
+class EntityEventCountingIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        var listeners = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> EntityEventCounter.entityLoaded());
+        listeners.appendListeners(EventType.FLUSH, (FlushEventListener) event -> flushed(event));
+        listeners.appendListeners(EventType.AUTO_FLUSH, (AutoFlushEventListener) event -> {
+            if (event.isFlushRequired()) {
+                flushed(event);
+            }
+        });
+    }
+
+    private static void flushed(FlushEvent event) {
+        // after Hibernate's own listeners; like its statistics, skips flushes of a session that manages nothing
+        if (event.getNumberOfEntitiesProcessed() > 0 || event.getNumberOfCollectionsProcessed() > 0) {
+            EntityEventCounter.flushed();
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.celfocus.hiring.kickstarter.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records how many SQL statements, entity loads and flushes each request issued, tagged like
+ * {@code http.server.requests}, so N+1 regressions show up per endpoint.
+ */
+class SqlStatementsInterceptor implements HandlerInterceptor {
+
+    static final String METRIC_NAME = "http.server.requests.sql.statements";
+    static final String ENTITY_LOADS_METRIC_NAME = "http.server.requests.entity.loads";
+    static final String FLUSHES_METRIC_NAME = "http.server.requests.flushes";
+
+    private final MeterRegistry meterRegistry;
+
+    SqlStatementsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlStatementCounter.start();
+        EntityEventCounter.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        var method = request.getMethod();
+        var uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        var entityEvents = EntityEventCounter.stop();
+        record(METRIC_NAME, "SQL statements issued while handling a request", "statements", method, uri,
+                SqlStatementCounter.stop());
+        record(ENTITY_LOADS_METRIC_NAME, "Entities Hibernate loaded while handling a request", "entities", method, uri,
+                entityEvents.entityLoads());
+        record(FLUSHES_METRIC_NAME, "Hibernate flushes while handling a request", "flushes", method, uri,
+                entityEvents.flushes());
+    }
+
+    private void record(String name, String description, String baseUnit, String method, String uri, int amount) {
+        DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(amount);
+    }
+}
@@ -0,0 +1,25 @@
+package com.celfocus.hiring.kickstarter.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between decimal amounts and exact {@code long} amounts of minor units (cents).
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @throws ArithmeticException when the amount has more than {@link #SCALE} decimals or does not fit a {@code long}
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -0,0 +1,55 @@
+package com.celfocus.hiring.kickstarter.util;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 text held in a shared buffer, usually a direct one allocated by {@link OffHeapTextStore}, and decoded on
+ * every {@link #toString()}.
+ */
+public final class OffHeapText implements Serializable {
+
+    private final transient ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    OffHeapText(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static OffHeapText onHeap(String text) {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new OffHeapText(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    public int byteLength() {
+        return length;
+    }
+
+    byte[] bytes() {
+        var bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes(), StandardCharsets.UTF_8);
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return new SerializedForm(toString());
+    }
+
+    private record SerializedForm(String text) implements Serializable {
+        @Serial
+        private Object readResolve() {
+            return onHeap(text);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.celfocus.hiring.kickstarter.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only arena of direct buffers for large, rarely read text such as product descriptions. Memory is released
+ * once neither the store nor any {@link OffHeapText} it returned is reachable. Not thread-safe for writes; the
+ * returned texts can be read concurrently.
+ */
+public final class OffHeapTextStore {
+
+    static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private ByteBuffer chunk;
+
+    public OffHeapText put(String text) {
+        return append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public OffHeapText copyOf(OffHeapText text) {
+        return append(text.bytes());
+    }
+
+    private OffHeapText append(byte[] bytes) {
+        if (chunk == null || chunk.remaining() < bytes.length) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, bytes.length));
+        }
+        int offset = chunk.position();
+        chunk.put(bytes);
+        return new OffHeapText(chunk, offset, bytes.length);
+    }
+}
@@ -1,25 +1,94 @@
 package com.celfocus.hiring.kickstarter.util;
 
 import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+/**
+ * Streams products out of a JSON array one at a time, so peak memory is bounded by the products kept, not by the
+ * size of the document. Descriptions are moved to an {@link OffHeapTextStore} and categories are deduplicated.
+ * <p>
+ * A product whose price cannot be held exactly in minor units is skipped and logged; the rest of the catalog loads.
+ */
 public class ProductsLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductsLoader.class);
     private static final String PRODUCTS_JSON_PATH = "products.json";
 
     public static List<ProductEntity> loadProducts(ObjectMapper objectMapper) {
+        var products = new ArrayList<ProductEntity>();
+        forEachProduct(objectMapper, products::add);
+        return products;
+    }
 
-        try {
-            ClassPathResource classPathResource = new ClassPathResource(PRODUCTS_JSON_PATH);
-            InputStream in = classPathResource.getInputStream();
-            return objectMapper.readValue(in, new TypeReference<>() {
-            });
+    public static void forEachProduct(ObjectMapper objectMapper, Consumer<ProductEntity> consumer) {
+        try (InputStream in = new ClassPathResource(PRODUCTS_JSON_PATH).getInputStream()) {
+            forEachProduct(objectMapper, in, consumer);
         } catch (Exception e) {
             throw new RuntimeException("Error reading products.json", e);
         }
     }
+
+    public static void forEachProduct(ObjectMapper objectMapper, Path file, Consumer<ProductEntity> consumer) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            forEachProduct(objectMapper, in, consumer);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading " + file, e);
+        }
+    }
+
+    public static void forEachProduct(ObjectMapper objectMapper, InputStream in, Consumer<ProductEntity> consumer) throws IOException {
+        var descriptions = new OffHeapTextStore();
+        var categories = new HashMap<String, String>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of products");
+            }
+            var products = parser.getParsingContext();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ProductEntity product;
+                try {
+                    product = objectMapper.readValue(parser, ProductEntity.class);
+                } catch (JsonMappingException e) {
+                    if (!(e.getCause() instanceof ArithmeticException)) {
+                        throw e;
+                    }
+                    LOGGER.warn("Skipping the product at line {}, column {}: its price is not a whole number of minor units ({})",
+                            e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage());
+                    // the failed product's remaining fields, up to its closing brace
+                    while (parser.getParsingContext() != products) {
+                        parser.nextToken();
+                    }
+                    continue;
+                }
+                compact(product, descriptions, categories);
+                consumer.accept(product);
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a product object at " + parser.currentLocation());
+            }
+        }
+    }
+
+    private static void compact(ProductEntity product, OffHeapTextStore descriptions, Map<String, String> categories) {
+        product.moveDescriptionTo(descriptions);
+        if (product.getCategory() != null) {
+            product.setCategory(categories.computeIfAbsent(product.getCategory(), category -> category));
+        }
+    }
 }
@@ -0,0 +1,20 @@
+-- Cart tables of every cart shard; the main database's schema is managed by Hibernate. Keep in step with CartEntity and CartItemEntity.
+CREATE TABLE IF NOT EXISTS TB_CART (
+    ITEM_COUNT INTEGER NOT NULL,
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    SUBTOTAL_MINOR_UNITS BIGINT NOT NULL,
+    UPDATED_AT TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    VERSION BIGINT NOT NULL,
+    USER_ID VARCHAR(255),
+    PRIMARY KEY (ID),
+    CONSTRAINT UK_CART_TO_USER UNIQUE (USER_ID)
+);
+CREATE TABLE IF NOT EXISTS TB_CART_ITEM (
+    PRICE NUMERIC(38, 2),
+    QUANTITY INTEGER,
+    CART_ID BIGINT NOT NULL,
+    CART_ITEM_ID VARCHAR(255) NOT NULL,
+    PRIMARY KEY (CART_ID, CART_ITEM_ID),
+    CONSTRAINT FK_CART_ITEM_TO_CART FOREIGN KEY (CART_ID) REFERENCES TB_CART
+);
+CREATE INDEX IF NOT EXISTS IX_CART_UPDATED_AT ON TB_CART (UPDATED_AT);
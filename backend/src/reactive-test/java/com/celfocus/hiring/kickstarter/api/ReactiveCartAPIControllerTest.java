@@ -0,0 +1,205 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartSummaryResponse;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.db.repo.ReactiveCartRepository;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveCartAPIControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveCartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionalOperator transactions;
+
+    @Test
+    void testCartLifecycle() {
+        // Given
+        String username = "reactive-user";
+        String added = addItem(username, "SKUTEST1", null).expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getETag();
+        addItem(username, "SKUTEST1", added).expectStatus().isCreated();
+        webTestClient.post().uri("/api/v1/carts/items/batch").header("username", username)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"items\":[{\"itemId\":\"SKUTEST2\",\"quantity\":3}]}")
+                .exchange()
+                .expectStatus().isCreated();
+        // When
+        var result = webTestClient.get().uri("/api/v1/carts").header("username", username).exchange()
+                .expectStatus().isOk()
+                .expectBody(CartResponse.class).returnResult();
+        String etag = result.getResponseHeaders().getETag();
+        // Then
+        var quantities = result.getResponseBody().items().stream().map(item -> item.itemId() + "=" + item.quantity()).sorted().toList();
+        assertEquals(List.of("SKUTEST1=2", "SKUTEST2=3"), quantities);
+        webTestClient.get().uri("/api/v1/carts").header("username", username).header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isNotModified();
+        var summary = webTestClient.get().uri("/api/v1/carts/summary").header("username", username).exchange()
+                .expectBody(CartSummaryResponse.class).returnResult().getResponseBody();
+        var subtotal = result.getResponseBody().items().stream()
+                .map(item -> item.price().multiply(BigDecimal.valueOf(item.quantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(5, summary.itemCount());
+        assertEquals(0, subtotal.compareTo(summary.subtotal()));
+        webTestClient.delete().uri("/api/v1/carts/items/SKUTEST1").header("username", username).header(HttpHeaders.IF_MATCH, added).exchange()
+                .expectStatus().isEqualTo(412);
+        webTestClient.delete().uri("/api/v1/carts/items/SKUTEST1").header("username", username).exchange()
+                .expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/v1/carts").header("username", username).exchange()
+                .expectStatus().isNoContent();
+        webTestClient.get().uri("/api/v1/carts/summary").header("username", username).exchange()
+                .expectBody(CartSummaryResponse.class).value(empty -> assertEquals(0, empty.itemCount()));
+    }
+
+    @Test
+    void testConcurrentAddsNeverOversellOrLoseUnits() {
+        // Given
+        var client = WebClient.create("http://localhost:" + port);
+        // When
+        var statuses = Flux.range(0, 24)
+                .flatMap(i -> add(client, "reactive-flash-" + i, "SKUTEST18"), 24)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        var hotCart = Flux.range(0, 40)
+                .flatMap(i -> add(client, "reactive-hot-cart", "SKUTEST19"), 16)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        // Then
+        assertEquals(17, statuses.stream().filter(status -> status == 201).count());
+        assertEquals(7, statuses.stream().filter(status -> status == 409).count());
+        assertTrue(hotCart.stream().allMatch(status -> status == 201));
+        webTestClient.get().uri("/api/v1/carts/summary").header("username", "reactive-hot-cart").exchange()
+                .expectBody(CartSummaryResponse.class).value(summary -> assertEquals(40, summary.itemCount()));
+    }
+
+    @Test
+    void testCborWhenAskedFor() {
+        // Given
+        String username = "reactive-cbor-user";
+        addItem(username, "SKUTEST9", null).expectStatus().isCreated();
+        // When
+        var result = webTestClient.get().uri("/api/v1/carts").header("username", username)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(CartResponse.class).returnResult();
+        // Then
+        assertEquals("SKUTEST9", result.getResponseBody().items().get(0).itemId());
+        assertEquals(HttpHeaders.ACCEPT, result.getResponseHeaders().getFirst(HttpHeaders.VARY));
+        webTestClient.get().uri("/api/v1/carts").header("username", username).exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void testInventoryCallsStayOffTheEventLoopUntilStockIsRecovered() throws InterruptedException {
+        // Given
+        var calls = new LinkedBlockingQueue<String>();
+        var service = new ReactiveCartService(cartRepository, productRepository, new RecoveringInventory(calls), transactions);
+        String username = "reactive-recovering-user";
+        var timeout = Duration.ofSeconds(10);
+        // When
+        var first = service.addItemToCart(username, new CartItemInput("SKUTEST3"), null).block(timeout);
+        service.addItemToCart(username, new CartItemInput("SKUTEST3"), null).block(timeout);
+        var stale = assertThrows(StaleCartException.class,
+                () -> service.addItemToCart(username, new CartItemInput("SKUTEST3"), first).block(timeout));
+        service.removeItemFromCart(username, "SKUTEST3", null).block(timeout);
+        service.addItemToCart(username, new CartItemInput("SKUTEST4"), null).block(timeout);
+        service.clearCart(username, null).block(timeout);
+        // Then
+        assertNotNull(stale);
+        var threads = new ArrayList<String>();
+        // reserve x4, release of the stale add (asynchronous), of the removal and of the clear
+        while (threads.size() < 7) {
+            var thread = calls.poll(10, TimeUnit.SECONDS);
+            assertNotNull(thread, "inventory calls so far: " + threads);
+            threads.add(thread);
+        }
+        assertTrue(threads.stream().allMatch(thread -> thread.startsWith("boundedElastic-")), threads.toString());
+    }
+
+    // Stock that never finishes recovering, and records the thread of every call that would wait for it.
+    private class RecoveringInventory extends Inventory {
+
+        private final BlockingQueue<String> calls;
+
+        RecoveringInventory(BlockingQueue<String> calls) {
+            super(productRepository, null, null, new SimpleMeterRegistry(), Duration.ofSeconds(10), true);
+            this.calls = calls;
+        }
+
+        @Override
+        public boolean isRecovered() {
+            return false;
+        }
+
+        @Override
+        public void reserve(String sku, int quantity) {
+            calls.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void reserve(Map<String, Integer> quantities) {
+            calls.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void release(String sku, int quantity) {
+            calls.add(Thread.currentThread().getName());
+        }
+    }
+
+    private static Mono<Integer> add(WebClient client, String username, String itemId) {
+        return client.post().uri("/api/v1/carts/items").header("username", username)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"itemId\":\"" + itemId + "\"}")
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()));
+    }
+
+    private WebTestClient.ResponseSpec addItem(String username, String itemId, String ifMatch) {
+        var request = webTestClient.post().uri("/api/v1/carts/items").header("username", username);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return request.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"itemId\":\"" + itemId + "\"}").exchange();
+    }
+}
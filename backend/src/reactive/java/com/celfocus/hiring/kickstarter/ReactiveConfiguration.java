@@ -0,0 +1,75 @@
+package com.celfocus.hiring.kickstarter;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.time.Duration;
+
+/**
+ * Wiring for the reactive profile: WebFlux on Netty, whose few event-loop threads serve any number of open
+ * connections (Tomcat, also on the classpath, would otherwise be picked), and R2DBC access to the cart tables.
+ * <p>
+ * The connection pool is deliberately not a bean: a {@code ConnectionFactory} bean makes Spring Boot drop the JDBC
+ * {@code DataSource} that JPA still needs for the schema, the catalog and stock, and a reactive transaction manager bean
+ * would compete with JPA's for {@code @Transactional}.
+ * <p>
+ * The reactive cart service reads and writes the main database's cart tables directly, so startup fails unless carts
+ * are kept there: {@code cart.store=jpa} with a single shard.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveConfiguration implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveConfiguration(@Value("${reactive.r2dbc.url}") String url,
+                                 @Value("${reactive.r2dbc.username:sa}") String username,
+                                 @Value("${reactive.r2dbc.pool.max-size:32}") int maxSize,
+                                 @Value("${reactive.r2dbc.pool.max-acquire-time:5s}") Duration maxAcquireTime,
+                                 @Value("${cart.store:jpa}") String cartStore,
+                                 @Value("${cart.shards.count:1}") int shardCount) {
+        if (!cartStore.equals("jpa") || shardCount > 1) {
+            throw new IllegalArgumentException("The reactive profile needs cart.store=jpa and cart.shards.count=1, not cart.store="
+                    + cartStore + " and cart.shards.count=" + shardCount);
+        }
+        var options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(8, maxSize))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+    }
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    DatabaseClient cartDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    TransactionalOperator cartTransactions() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
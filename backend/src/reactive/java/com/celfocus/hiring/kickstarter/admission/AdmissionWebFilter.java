@@ -0,0 +1,37 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies {@link AdmissionControl} to the reactive stack's cart mutations. A place under the concurrency limit is given
+ * back when the response completes, fails or is cancelled.
+ */
+class AdmissionWebFilter implements WebFilter {
+
+    private final AdmissionControl admissionControl;
+
+    AdmissionWebFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        if (!AdmissionControl.isCartMutation(request.getMethod().name(), request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        var shed = admissionControl.admit(request.getHeaders().getFirst("username"));
+        if (shed != null) {
+            var response = exchange.getResponse();
+            response.setStatusCode(shed.status());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(shed.retryAfterSeconds()));
+            return response.setComplete();
+        }
+        long admittedAt = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> admissionControl.release(admittedAt));
+    }
+}
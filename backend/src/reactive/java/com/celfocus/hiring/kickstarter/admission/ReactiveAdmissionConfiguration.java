@@ -0,0 +1,22 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * Puts {@link AdmissionControl} in front of the cart mutations of WebFlux, as {@link AdmissionConfiguration} does for
+ * Spring MVC.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "admission.enabled", matchIfMissing = true)
+@Profile("reactive")
+public class ReactiveAdmissionConfiguration {
+
+    @Bean
+    WebFilter admissionWebFilter(AdmissionControl admissionControl) {
+        return new AdmissionWebFilter(admissionControl);
+    }
+}
@@ -0,0 +1,42 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartSummaryResponse;
+import jakarta.validation.Valid;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link CartAPI} with non-blocking return types, for the reactive profile.
+ */
+@Validated
+public interface ReactiveCartAPI {
+    @PostMapping("/items")
+    Mono<ResponseEntity<Void>> addItemToCart(@RequestHeader("username") String username, @Valid @RequestBody CartItemInput itemInput,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+
+    @PostMapping("/items/batch")
+    Mono<ResponseEntity<Void>> addItemsToCart(@RequestHeader("username") String username, @Valid @RequestBody CartItemsInput itemsInput,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+
+    @DeleteMapping
+    Mono<ResponseEntity<Void>> clearCart(@RequestHeader("username") String username,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+
+    @GetMapping
+    Mono<ResponseEntity<CartResponse>> getCart(@RequestHeader("username") String username,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+
+    @GetMapping("/summary")
+    Mono<ResponseEntity<CartSummaryResponse>> getCartSummary(@RequestHeader("username") String username);
+
+    @DeleteMapping("/items/{itemId}")
+    Mono<ResponseEntity<Void>> removeItemFromCart(@RequestHeader("username") String username, @PathVariable("itemId") String itemId,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+}
@@ -0,0 +1,107 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartSummaryResponse;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static com.celfocus.hiring.kickstarter.api.CartAPIController.etag;
+
+/**
+ * {@link CartAPIController} on WebFlux and R2DBC: same paths, headers and responses, but no request ever holds a
+ * thread while it waits for the database or the client.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping(CartAPIController.CARTS_PATH)
+public class ReactiveCartAPIController implements ReactiveCartAPI {
+
+    private final ReactiveCartService cartService;
+    private final ProductService productService;
+
+    @Autowired
+    public ReactiveCartAPIController(ReactiveCartService cartService, ProductService productService) {
+        this.cartService = cartService;
+        this.productService = productService;
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> addItemToCart(String username, CartItemInput itemInput, String ifMatch) {
+        return expectedVersion(username, ifMatch)
+                .flatMap(expected -> cartService.addItemToCart(username, itemInput, expected.orElse(null)))
+                .map(version -> ResponseEntity.status(201).eTag(etag(version)).build());
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> addItemsToCart(String username, CartItemsInput itemsInput, String ifMatch) {
+        return expectedVersion(username, ifMatch)
+                .flatMap(expected -> cartService.addItemsToCart(username, itemsInput, expected.orElse(null)))
+                .map(version -> ResponseEntity.status(201).eTag(etag(version)).build());
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> clearCart(String username, String ifMatch) {
+        return expectedVersion(username, ifMatch)
+                .flatMap(expected -> cartService.clearCart(username, expected.orElse(null)))
+                .then(Mono.fromSupplier(() -> ResponseEntity.status(204).build()));
+    }
+
+    @Override
+    public Mono<ResponseEntity<CartResponse>> getCart(String username, String ifNoneMatch) {
+        var notModified = ifNoneMatch == null ? Mono.<ResponseEntity<CartResponse>>empty() : cartService.getCartVersion(username)
+                .filter(current -> ETags.matchesAny(ifNoneMatch, etag(current)))
+                .map(current -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(current)).varyBy(HttpHeaders.ACCEPT).<CartResponse>build());
+        return notModified.switchIfEmpty(Mono.defer(() -> cartService.getCart(username)
+                .map(cart -> ResponseEntity.ok().eTag(etag(cart.getCartVersion())).varyBy(HttpHeaders.ACCEPT)
+                        .body(CartAPIController.mapToCartResponse(cart, productService)))));
+    }
+
+    @Override
+    public Mono<ResponseEntity<CartSummaryResponse>> getCartSummary(String username) {
+        return cartService.getCartSummary(username)
+                .map(summary -> ResponseEntity.ok(new CartSummaryResponse(summary.itemCount(), MinorUnits.toDecimal(summary.subtotalMinorUnits()))));
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> removeItemFromCart(String username, String itemId, String ifMatch) {
+        return expectedVersion(username, ifMatch)
+                .flatMap(expected -> cartService.removeItemFromCart(username, itemId, expected.orElse(null)))
+                .map(version -> ResponseEntity.status(204).eTag(etag(version)).<Void>build())
+                .defaultIfEmpty(ResponseEntity.status(204).build());
+    }
+
+    /**
+     * As in {@link CartAPIController}; empty when the mutation applies unconditionally.
+     */
+    private Mono<Optional<CartVersion>> expectedVersion(String username, String ifMatch) {
+        if (ifMatch == null) {
+            return Mono.just(Optional.empty());
+        }
+        if (ifMatch.trim().equals("*")) {
+            return cartService.getCartVersion(username)
+                    .map(current -> Optional.<CartVersion>empty())
+                    .switchIfEmpty(Mono.error(() -> new StaleCartException(username)));
+        }
+        var versions = CartAPIController.parseETags(ifMatch);
+        if (versions.size() == 1) {
+            return Mono.just(Optional.of(versions.get(0)));
+        }
+        return cartService.getCartVersion(username)
+                .filter(versions::contains)
+                .map(Optional::of)
+                .switchIfEmpty(Mono.error(() -> new StaleCartException(username)));
+    }
+}
@@ -0,0 +1,237 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemQuantityInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.db.repo.CartLineView;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.db.repo.ReactiveCartRepository;
+import com.celfocus.hiring.kickstarter.db.store.CartQuantityOverflowException;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link CartService} for the reactive profile: the same operations on the same tables, as non-blocking R2DBC
+ * transactions. Stock is reserved before a transaction starts and handed back if it fails or is cancelled; releases
+ * wait for the commit. Every {@link Inventory} call, and the catalog lookups of a batch add, block while stock is still
+ * being recovered, so until then they run on {@link Schedulers#boundedElastic()} rather than on the event loop. Carts
+ * are read straight from the database, as {@link CartCache} only serves the servlet stack.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCartService {
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final ReactiveCartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final Inventory inventory;
+    private final TransactionalOperator transactions;
+
+    @Autowired
+    public ReactiveCartService(ReactiveCartRepository cartRepository, ProductRepository productRepository, Inventory inventory,
+                               TransactionalOperator transactions) {
+        this.cartRepository = cartRepository;
+        this.productRepository = productRepository;
+        this.inventory = inventory;
+        this.transactions = transactions;
+    }
+
+    /**
+     * @see CartService#addItemToCart(String, CartItemInput, CartVersion)
+     */
+    public Mono<CartVersion> addItemToCart(String username, CartItemInput itemInput, CartVersion expected) {
+        var itemId = itemInput.itemId();
+        return Mono.defer(() -> onInventory(() -> inventory.reserve(itemId, 1))
+                .then(releaseOnFailure(outOfRange(username, transactions.transactional(addItem(username, itemId, expected))), Map.of(itemId, 1))));
+    }
+
+    private Mono<CartVersion> addItem(String username, String itemId, CartVersion expected) {
+        return cartRepository.incrementQuantity(username, itemId, 1)
+                .flatMap(linePrice -> updateTotals(username, 1, MinorUnits.of(linePrice), expected))
+                .switchIfEmpty(Mono.defer(() -> {
+                    var product = productRepository.findBySku(itemId)
+                            .orElseThrow(() -> new CartItemNotFoundException(itemId));
+                    return cartRepository.findOrCreateCartId(username)
+                            .flatMap(cartId -> insertOrIncrement(username, cartId, itemId, product.getPrice(), expected, 0));
+                }));
+    }
+
+    private Mono<CartVersion> insertOrIncrement(String username, Long cartId, String itemId, BigDecimal price, CartVersion expected, int attempt) {
+        if (attempt >= MAX_UPSERT_ATTEMPTS) {
+            return Mono.error(new RuntimeException("Could not add item to cart"));
+        }
+        return cartRepository.insertItem(cartId, itemId, price, 1).flatMap(inserted -> inserted
+                ? updateTotals(username, 1, MinorUnits.of(price), expected)
+                : cartRepository.incrementQuantity(username, itemId, 1)
+                        .flatMap(linePrice -> updateTotals(username, 1, MinorUnits.of(linePrice), expected))
+                        .switchIfEmpty(Mono.defer(() -> insertOrIncrement(username, cartId, itemId, price, expected, attempt + 1))));
+    }
+
+    /**
+     * @see CartService#addItemsToCart(String, CartItemsInput, CartVersion)
+     */
+    public Mono<CartVersion> addItemsToCart(String username, CartItemsInput itemsInput, CartVersion expected) {
+        return untilRecovered(Mono.defer(() -> {
+            var quantities = new LinkedHashMap<String, Integer>();
+            for (CartItemQuantityInput item : itemsInput.items()) {
+                quantities.merge(item.itemId(), item.quantity(), Math::addExact);
+            }
+
+            var products = productRepository.findAllBySku(quantities.keySet());
+            if (products.size() != quantities.size()) {
+                return Mono.error(new CartItemNotFoundException(CartService.firstMissing(quantities.keySet(), products)));
+            }
+            var prices = new HashMap<String, BigDecimal>(products.size() * 2);
+            products.forEach((sku, product) -> prices.put(sku, product.getPrice()));
+
+            return onInventory(() -> inventory.reserve(quantities)).then(releaseOnFailure(outOfRange(username, transactions.transactional(cartRepository.findOrCreateCartId(username)
+                            .flatMap(cartId -> cartRepository.addItems(cartId, quantities, prices))
+                            .flatMap(linePrices -> {
+                                int units = 0;
+                                long amount = 0;
+                                for (var entry : quantities.entrySet()) {
+                                    units = Math.addExact(units, entry.getValue());
+                                    amount = Math.addExact(amount, Math.multiplyExact(entry.getValue(), MinorUnits.of(linePrices.get(entry.getKey()))));
+                                }
+                                return updateTotals(username, units, amount, expected);
+                            }))), quantities));
+        }));
+    }
+
+    /**
+     * @see CartService#clearCart(String, CartVersion)
+     */
+    public Mono<Void> clearCart(String username, CartVersion expected) {
+        return transactions.transactional(cartRepository.removeItems(username)
+                        .collectList()
+                        .flatMap(lines -> cartRepository.deleteCart(username, expected).flatMap(deleted -> {
+                            if (expected != null && deleted == 0) {
+                                return Mono.error(new StaleCartException(username));
+                            }
+                            return Mono.just(lines);
+                        })))
+                .flatMap(lines -> onInventory(() ->
+                        lines.forEach(line -> inventory.release(line.itemId(), line.quantity()))));
+    }
+
+    /**
+     * @see CartService#getCart(String)
+     */
+    public Mono<Cart<? extends CartItem>> getCart(String username) {
+        return cartRepository.findCartLines(username)
+                .collectList()
+                .map(lines -> {
+                    if (lines.isEmpty()) {
+                        throw new RuntimeException("Cart not found");
+                    }
+                    return mapToCart(username, lines);
+                });
+    }
+
+    /**
+     * @see CartService#getCartSummary(String)
+     */
+    public Mono<CartSummaryView> getCartSummary(String username) {
+        return cartRepository.findSummary(username).defaultIfEmpty(new CartSummaryView(username, 0, 0));
+    }
+
+    /**
+     * @see CartService#getCartVersion(String)
+     */
+    public Mono<CartVersion> getCartVersion(String username) {
+        return cartRepository.findVersion(username);
+    }
+
+    /**
+     * @see CartService#removeItemFromCart(String, String, CartVersion)
+     */
+    public Mono<CartVersion> removeItemFromCart(String username, String itemId, CartVersion expected) {
+        var removal = cartRepository.removeItem(username, itemId)
+                .flatMap(line -> updateTotals(username, -line.quantity(), -Math.multiplyExact(line.quantity(), MinorUnits.of(line.price())), expected)
+                        .map(version -> Map.entry(line.quantity(), version)))
+                // nothing changed, so there is no version to bump; a conditional removal is still checked
+                .switchIfEmpty(Mono.defer(() -> expected == null ? Mono.empty() : cartRepository.findVersion(username)
+                        .filter(expected::equals)
+                        .switchIfEmpty(Mono.error(new StaleCartException(username)))
+                        .map(version -> Map.entry(0, version))));
+        return transactions.transactional(removal)
+                .flatMap(removed -> onInventory(() -> inventory.release(itemId, removed.getKey())).thenReturn(removed.getValue()));
+    }
+
+    // As in JpaCartStore: no row is only a failed precondition when a version was expected.
+    private Mono<CartVersion> updateTotals(String username, int units, long amountMinorUnits, CartVersion expected) {
+        return cartRepository.addToTotals(username, units, amountMinorUnits, expected)
+                .switchIfEmpty(Mono.error(() -> expected != null
+                        ? new StaleCartException(username)
+                        : new IllegalStateException("Cart deleted while being updated: " + username)));
+    }
+
+    // The database refuses a QUANTITY or ITEM_COUNT past INTEGER's range instead of wrapping it.
+    private static <T> Mono<T> outOfRange(String username, Mono<T> transaction) {
+        return transaction.onErrorMap(
+                e -> CartQuantityOverflowException.isOutOfRange(e, cause -> cause instanceof R2dbcException r2dbc ? r2dbc.getSqlState() : null),
+                e -> new CartQuantityOverflowException(username));
+    }
+
+    private Mono<Void> onInventory(Runnable call) {
+        return untilRecovered(Mono.fromRunnable(call));
+    }
+
+    // Decided per subscription: off the event loop until stock is recovered, inline once nothing can block.
+    private <T> Mono<T> untilRecovered(Mono<T> work) {
+        return Mono.defer(() -> inventory.isRecovered() ? work : work.subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    // Called per subscription, from inside Mono.defer, so every attempt tracks its own outcome.
+    private <T> Mono<T> releaseOnFailure(Mono<T> transaction, Map<String, Integer> reserved) {
+        var committed = new AtomicBoolean();
+        return transaction
+                .doOnSuccess(result -> committed.set(true))
+                .doFinally(signal -> {
+                    if (!committed.get()) {
+                        // nothing downstream waits for it, so a release off the event loop finishes on its own
+                        onInventory(() -> reserved.forEach(inventory::release)).subscribe();
+                    }
+                });
+    }
+
+    private Cart<? extends CartItem> mapToCart(String username, List<CartLineView> lines) {
+        var items = new ArrayList<CartItem>(lines.size());
+        for (CartLineView line : lines) {
+            if (line.itemId() != null) {
+                var item = new CartItem();
+                item.setItemId(line.itemId());
+                item.setPrice(line.price());
+                item.setQuantity(line.quantity());
+                items.add(item);
+            }
+        }
+        Cart<CartItem> cart = new Cart<>();
+        cart.setId(lines.get(0).cartId());
+        cart.setVersion(lines.get(0).cartVersion());
+        cart.setUserId(username);
+        cart.setItems(Collections.unmodifiableList(items));
+        return cart;
+    }
+}
@@ -0,0 +1,225 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cart tables over R2DBC, for the reactive profile. Runs the same SQL as {@link CartRepositoryImpl} and
+ * {@link CartItemRepositoryImpl}, so both stacks read and write identical rows with identical concurrency guarantees;
+ * transactions are left to the caller.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCartRepository {
+
+    private static final String FIND_CART_LINES = """
+            SELECT C.ID, C.VERSION, C.USER_ID, I.CART_ITEM_ID, I.PRICE, I.QUANTITY
+            FROM TB_CART C LEFT JOIN TB_CART_ITEM I ON I.CART_ID = C.ID
+            WHERE C.USER_ID = :userId""";
+
+    private static final String FIND_VERSION = "SELECT ID, VERSION FROM TB_CART WHERE USER_ID = :userId";
+
+    private static final String FIND_SUMMARY = "SELECT USER_ID, ITEM_COUNT, SUBTOTAL_MINOR_UNITS FROM TB_CART WHERE USER_ID = :userId";
+
+    private static final String DELETE_CART = "DELETE FROM TB_CART WHERE USER_ID = :userId";
+
+    private static final String DELETE_CART_IF_VERSION = """
+            DELETE FROM TB_CART WHERE USER_ID = :userId AND ID = :cartId AND VERSION = :version""";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveCartRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * @see CartRepositoryCustom#findOrCreateCartId(String)
+     */
+    public Mono<Long> findOrCreateCartId(String username) {
+        return findOrCreateCartId(username, 1);
+    }
+
+    private Mono<Long> findOrCreateCartId(String username, int attempt) {
+        return databaseClient.sql(CartRepositoryImpl.FIND_CART_ID)
+                .bind("userId", username)
+                .map(row -> row.get("ID", Long.class))
+                .first()
+                .switchIfEmpty(Mono.defer(() -> databaseClient.sql(CartRepositoryImpl.INSERT_CART)
+                        .bind("userId", username)
+                        .filter(statement -> statement.returnGeneratedValues("ID"))
+                        .map(row -> row.get("ID", Long.class))
+                        .one()))
+                // another request created the cart in the meantime, read it back
+                .onErrorResume(DuplicateKeyException.class, e -> attempt >= CartRepositoryImpl.MAX_ATTEMPTS
+                        ? Mono.error(e)
+                        : findOrCreateCartId(username, attempt + 1));
+    }
+
+    /**
+     * @see CartRepositoryCustom#addToTotals(String, int, long, CartVersion)
+     */
+    public Mono<CartVersion> addToTotals(String username, int units, long amountMinorUnits, CartVersion expected) {
+        var spec = databaseClient.sql(expected == null ? CartRepositoryImpl.ADD_TO_TOTALS : CartRepositoryImpl.ADD_TO_TOTALS_IF_VERSION)
+                .bind("userId", username)
+                .bind("units", units)
+                .bind("amount", amountMinorUnits);
+        if (expected != null) {
+            spec = spec.bind("cartId", expected.cartId()).bind("version", expected.version());
+        }
+        return spec.map(row -> new CartVersion(row.get("ID", Long.class), row.get("VERSION", Long.class))).first();
+    }
+
+    /**
+     * @see CartItemRepositoryCustom#incrementQuantity(String, String, int)
+     */
+    public Mono<BigDecimal> incrementQuantity(String username, String itemId, int byCount) {
+        return databaseClient.sql(CartItemRepositoryImpl.INCREMENT_QUANTITY)
+                .bind("userId", username)
+                .bind("itemId", itemId)
+                .bind("byCount", byCount)
+                .map(row -> row.get("PRICE", BigDecimal.class))
+                .first();
+    }
+
+    /**
+     * @see CartItemRepositoryCustom#insertItem(Long, String, BigDecimal, int)
+     */
+    public Mono<Boolean> insertItem(Long cartId, String itemId, BigDecimal price, int quantity) {
+        return databaseClient.sql(CartItemRepositoryImpl.INSERT_ITEM)
+                .bind("cartId", cartId)
+                .bind("itemId", itemId)
+                .bind("price", price)
+                .bind("quantity", quantity)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(true)
+                .onErrorReturn(DuplicateKeyException.class, false);
+    }
+
+    /**
+     * Like {@link CartItemRepositoryCustom#addItems(Long, Map, Map)}, one line after the other: R2DBC has no batch that
+     * reports per-row update counts.
+     */
+    public Mono<Map<String, BigDecimal>> addItems(Long cartId, Map<String, Integer> quantities, Map<String, BigDecimal> prices) {
+        var itemIds = List.copyOf(quantities.keySet());
+        return Flux.fromIterable(itemIds)
+                .concatMap(itemId -> addItem(cartId, itemId, prices.get(itemId), quantities.get(itemId)))
+                .then(Mono.defer(() -> findPrices(cartId, itemIds)));
+    }
+
+    private Mono<Void> addItem(Long cartId, String itemId, BigDecimal price, int quantity) {
+        var increment = incrementCartQuantity(cartId, itemId, quantity);
+        return increment
+                .flatMap(updated -> updated > 0 ? Mono.just(true) : insertItem(cartId, itemId, price, quantity))
+                .flatMap(added -> added ? Mono.empty() : increment)
+                .then();
+    }
+
+    private Mono<Long> incrementCartQuantity(Long cartId, String itemId, int byCount) {
+        return databaseClient.sql(CartItemRepositoryImpl.INCREMENT_CART_QUANTITY)
+                .bind("cartId", cartId)
+                .bind("itemId", itemId)
+                .bind("byCount", byCount)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Mono<Map<String, BigDecimal>> findPrices(Long cartId, List<String> itemIds) {
+        return databaseClient.sql(CartItemRepositoryImpl.FIND_PRICES)
+                .bind("cartId", cartId)
+                .bind("itemIds", itemIds)
+                .map(row -> Map.entry(row.get("CART_ITEM_ID", String.class), row.get("PRICE", BigDecimal.class)))
+                .all()
+                .collect(() -> new HashMap<String, BigDecimal>(itemIds.size() * 2), (prices, entry) -> prices.put(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * @see CartItemRepositoryCustom#removeItem(String, String)
+     */
+    public Mono<CartLineView> removeItem(String username, String itemId) {
+        return databaseClient.sql(CartItemRepositoryImpl.DELETE_ITEM)
+                .bind("userId", username)
+                .bind("itemId", itemId)
+                .map(row -> mapRemovedLine(username, row))
+                .first();
+    }
+
+    /**
+     * @see CartItemRepositoryCustom#removeItems(String)
+     */
+    public Flux<CartLineView> removeItems(String username) {
+        return databaseClient.sql(CartItemRepositoryImpl.DELETE_ITEMS)
+                .bind("userId", username)
+                .map(row -> mapRemovedLine(username, row))
+                .all();
+    }
+
+    /**
+     * @see CartRepository#findCartLinesByUserId(String)
+     */
+    public Flux<CartLineView> findCartLines(String username) {
+        return databaseClient.sql(FIND_CART_LINES)
+                .bind("userId", username)
+                .map(row -> new CartLineView(
+                        row.get("ID", Long.class),
+                        row.get("VERSION", Long.class),
+                        row.get("USER_ID", String.class),
+                        row.get("CART_ITEM_ID", String.class),
+                        row.get("PRICE", BigDecimal.class),
+                        row.get("QUANTITY", Integer.class)))
+                .all();
+    }
+
+    /**
+     * @see CartRepository#findVersionByUserId(String)
+     */
+    public Mono<CartVersion> findVersion(String username) {
+        return databaseClient.sql(FIND_VERSION)
+                .bind("userId", username)
+                .map(row -> new CartVersion(row.get("ID", Long.class), row.get("VERSION", Long.class)))
+                .first();
+    }
+
+    /**
+     * @see CartRepository#findSummaryByUserId(String)
+     */
+    public Mono<CartSummaryView> findSummary(String username) {
+        return databaseClient.sql(FIND_SUMMARY)
+                .bind("userId", username)
+                .map(row -> new CartSummaryView(
+                        row.get("USER_ID", String.class),
+                        row.get("ITEM_COUNT", Integer.class),
+                        row.get("SUBTOTAL_MINOR_UNITS", Long.class)))
+                .first();
+    }
+
+    /**
+     * @see CartRepository#deleteByUserId(String)
+     * @see CartRepository#deleteByUserIdAndVersion(String, long, long)
+     */
+    public Mono<Long> deleteCart(String username, CartVersion expected) {
+        var spec = databaseClient.sql(expected == null ? DELETE_CART : DELETE_CART_IF_VERSION).bind("userId", username);
+        if (expected != null) {
+            spec = spec.bind("cartId", expected.cartId()).bind("version", expected.version());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static CartLineView mapRemovedLine(String username, Readable row) {
+        return new CartLineView(row.get("CART_ID", Long.class), null, username, row.get("CART_ITEM_ID", String.class),
+                row.get("PRICE", BigDecimal.class), row.get("QUANTITY", Integer.class));
+    }
+}
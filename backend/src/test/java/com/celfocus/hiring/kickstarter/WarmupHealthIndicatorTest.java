@@ -0,0 +1,46 @@
+package com.celfocus.hiring.kickstarter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = "catalog.load-in-background=true")
+@AutoConfigureMockMvc
+class WarmupHealthIndicatorTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testReadyOnceCatalogIndexedAndStockRecovered() throws Exception {
+        // When
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                assertEquals(200, mockMvc.perform(get("/actuator/health/readiness")).andReturn().getResponse().getStatus()));
+        MvcResult readiness = mockMvc.perform(get("/actuator/health/readiness")).andReturn();
+        // Then
+        var warmup = objectMapper.readTree(readiness.getResponse().getContentAsString()).at("/components/warmup");
+        assertEquals("UP", warmup.get("status").asText());
+        assertEquals("indexed", warmup.at("/details/catalog").asText());
+        assertEquals("recovered", warmup.at("/details/stock").asText());
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertTrue(meterRegistry.get("application.warmup.time").timeGauge().value(TimeUnit.MILLISECONDS) > 0));
+    }
+}
@@ -0,0 +1,112 @@
+package com.celfocus.hiring.kickstarter.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    @Test
+    void testUserOutOfTokensIsShedAndOthersAreNot() {
+        // Given
+        var registry = new SimpleMeterRegistry();
+        var admissionControl = new AdmissionControl(registry, 0.5, 3, 1024, 32, 8, 128, 2.0);
+        for (int i = 0; i < 3; i++) {
+            assertNull(admissionControl.admit("bot"));
+            admissionControl.release(System.nanoTime());
+        }
+        // When
+        var shed = admissionControl.admit("bot");
+        var other = admissionControl.admit("shopper");
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, shed.status());
+        assertEquals(2, shed.retryAfterSeconds());
+        assertNull(other);
+        assertEquals(1, registry.get("admission.shed").tag("reason", "user-rate").counter().count());
+    }
+
+    @Test
+    void testConcurrentRequestsNeverExceedTheBurst() throws Exception {
+        // Given
+        var limiter = new UserRateLimiter(0.001, 10, 1024);
+        int threads = 16;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var admitted = new AtomicInteger();
+        var futures = new ArrayList<Future<?>>();
+        // When
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 50; i++) {
+                        if (limiter.tryAcquire("bot") == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // Then
+        assertEquals(10, admitted.get());
+    }
+
+    @Test
+    void testFullConcurrencyLimitIsShed() {
+        // Given
+        var registry = new SimpleMeterRegistry();
+        var admissionControl = new AdmissionControl(registry, 1000, 1000, 1024, 2, 2, 2, 2.0);
+        assertNull(admissionControl.admit("first"));
+        assertNull(admissionControl.admit("second"));
+        // When
+        var shed = admissionControl.admit("third");
+        admissionControl.release(System.nanoTime());
+        // Then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.status());
+        assertEquals(1, shed.retryAfterSeconds());
+        assertNull(admissionControl.admit("third"));
+        assertEquals(1, registry.get("admission.shed").tag("reason", "concurrency").counter().count());
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyHoldsAndShrinksWhenItClimbs() {
+        // Given
+        var limit = new AdaptiveConcurrencyLimit(20, 2, 100, 2.0);
+        for (int i = 0; i < 200; i++) {
+            fill(limit);
+            limit.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        int grown = limit.limit();
+        // When
+        for (int i = 0; i < 50; i++) {
+            fill(limit);
+            limit.release(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // Then
+        assertTrue(grown > 20);
+        assertTrue(limit.limit() < grown / 2);
+        assertFalse(limit.tryAcquire());
+    }
+
+    private static void fill(AdaptiveConcurrencyLimit limit) {
+        while (limit.tryAcquire()) {
+            // take every free place, as a saturating load would
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemQuantityInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CartAPIControllerTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testNotModifiedUntilTheCartChanges() throws Exception {
+        // Given
+        String username = "etag-user";
+        String added = addItem(username, "SKUTEST1", null).getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult first = mockMvc.perform(get("/api/v1/carts").header("username", username)).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        // When
+        MvcResult unchanged = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        addItem(username, "SKUTEST2", null);
+        MvcResult changed = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        // Then
+        assertEquals(200, first.getResponse().getStatus());
+        assertEquals(added, etag);
+        assertEquals(304, unchanged.getResponse().getStatus());
+        assertEquals(0, unchanged.getResponse().getContentLength());
+        assertEquals(200, changed.getResponse().getStatus());
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(2, objectMapper.readTree(changed.getResponse().getContentAsString()).get("items").size());
+    }
+
+    @Test
+    void testStaleIfMatchIsRejectedAndChangesNothing() throws Exception {
+        // Given
+        String username = "if-match-user";
+        String stale = addItem(username, "SKUTEST3", null).getResponse().getHeader(HttpHeaders.ETAG);
+        String current = addItem(username, "SKUTEST3", stale).getResponse().getHeader(HttpHeaders.ETAG);
+        // When
+        MvcResult add = addItem(username, "SKUTEST4", stale);
+        MvcResult remove = mockMvc.perform(delete("/api/v1/carts/items/SKUTEST3").header("username", username)
+                .header(HttpHeaders.IF_MATCH, stale)).andReturn();
+        MvcResult clear = mockMvc.perform(delete("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_MATCH, "\"garbage\"")).andReturn();
+        // Then
+        assertEquals(412, add.getResponse().getStatus());
+        assertEquals(412, remove.getResponse().getStatus());
+        assertEquals(412, clear.getResponse().getStatus());
+        MvcResult cart = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_NONE_MATCH, current)).andReturn();
+        assertEquals(304, cart.getResponse().getStatus());
+        assertEquals(204, mockMvc.perform(delete("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_MATCH, current)).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void testIfMatchListAppliesWhenAnyTagIsCurrent() throws Exception {
+        // Given
+        String username = "if-match-list-user";
+        String stale = addItem(username, "SKUTEST10", null).getResponse().getHeader(HttpHeaders.ETAG);
+        String current = addItem(username, "SKUTEST10", stale).getResponse().getHeader(HttpHeaders.ETAG);
+        // When
+        MvcResult rejected = addItem(username, "SKUTEST10", stale + ", W/" + current);
+        MvcResult applied = addItem(username, "SKUTEST10", stale + ", " + current);
+        // Then
+        assertEquals(412, rejected.getResponse().getStatus());
+        assertEquals(201, applied.getResponse().getStatus());
+        assertNotEquals(current, applied.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(412, addItem(username, "SKUTEST10", stale + ", " + current).getResponse().getStatus());
+    }
+
+    @Test
+    void testRecreatedCartNeverReusesAnEtag() throws Exception {
+        // Given
+        String username = "recreated-user";
+        String before = addItem(username, "SKUTEST5", null).getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(delete("/api/v1/carts").header("username", username));
+        // When
+        String after = addItem(username, "SKUTEST6", null).getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult cart = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .header(HttpHeaders.IF_NONE_MATCH, before)).andReturn();
+        // Then
+        assertNotEquals(before, after);
+        assertEquals(200, cart.getResponse().getStatus());
+        assertEquals(412, addItem("no-cart-user", "SKUTEST5", "*").getResponse().getStatus());
+    }
+
+    @Test
+    void testBinaryEncodingsOnlyWhenAskedFor() throws Exception {
+        // Given
+        String username = "binary-user";
+        addItem(username, "SKUTEST7", null);
+        mockMvc.perform(post("/api/v1/carts/items/batch").header("username", username)
+                .contentType(SMILE)
+                .content(new SmileMapper().writeValueAsBytes(Map.of("items", List.of(Map.of("itemId", "SKUTEST8", "quantity", 2))))));
+        // When
+        MvcResult json = mockMvc.perform(get("/api/v1/carts").header("username", username)).andReturn();
+        MvcResult cbor = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .accept(MediaType.APPLICATION_CBOR)).andReturn();
+        MvcResult smile = mockMvc.perform(get("/api/v1/carts").header("username", username)
+                .accept(SMILE)).andReturn();
+        // Then
+        var expected = objectMapper.readValue(json.getResponse().getContentAsString(), CartResponse.class);
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getResponse().getContentType());
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, cbor.getResponse().getContentType());
+        assertEquals(SMILE.toString(), smile.getResponse().getContentType());
+        assertEquals(expected, new CBORMapper().readValue(cbor.getResponse().getContentAsByteArray(), CartResponse.class));
+        assertEquals(expected, new SmileMapper().readValue(smile.getResponse().getContentAsByteArray(), CartResponse.class));
+        assertEquals(3, expected.items().stream().mapToInt(item -> item.quantity()).sum());
+        assertTrue(cbor.getResponse().getContentAsByteArray().length < json.getResponse().getContentAsByteArray().length);
+        assertEquals(HttpHeaders.ACCEPT, cbor.getResponse().getHeader(HttpHeaders.VARY));
+        assertEquals(json.getResponse().getHeader(HttpHeaders.ETAG), cbor.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testMutationsBeyondTheUsersBurstAreShed() throws Exception {
+        // Given
+        MvcResult shed = null;
+        for (int i = 0; i < 200 && shed == null; i++) {
+            MvcResult result = mockMvc.perform(delete("/api/v1/carts").header("username", "burst-user")).andReturn();
+            if (result.getResponse().getStatus() != 204) {
+                shed = result;
+            }
+        }
+        // When
+        MvcResult read = mockMvc.perform(get("/api/v1/carts/summary").header("username", "burst-user")).andReturn();
+        MvcResult other = mockMvc.perform(delete("/api/v1/carts").header("username", "patient-user")).andReturn();
+        // Then
+        assertNotNull(shed);
+        assertEquals(429, shed.getResponse().getStatus());
+        assertTrue(Long.parseLong(shed.getResponse().getHeader(HttpHeaders.RETRY_AFTER)) >= 1);
+        assertEquals(200, read.getResponse().getStatus());
+        assertEquals(204, other.getResponse().getStatus());
+    }
+
+    @Test
+    void testUnknownItemsAndOversizedQuantitiesAreRejected() throws Exception {
+        // Given
+        String username = "rejected-user";
+        // When
+        MvcResult unknown = addItem(username, "UNKNOWN", null);
+        MvcResult unknownInBatch = addItems(username, Map.of("itemId", "SKUTEST9", "quantity", 1), Map.of("itemId", "UNKNOWN", "quantity", 1));
+        MvcResult oversized = addItems(username, Map.of("itemId", "SKUTEST9", "quantity", CartItemQuantityInput.MAX_QUANTITY + 1));
+        // Then
+        assertEquals(404, unknown.getResponse().getStatus());
+        assertEquals(404, unknownInBatch.getResponse().getStatus());
+        assertEquals(400, oversized.getResponse().getStatus());
+        MvcResult summary = mockMvc.perform(get("/api/v1/carts/summary").header("username", username)).andReturn();
+        assertEquals(0, objectMapper.readTree(summary.getResponse().getContentAsString()).get("itemCount").asInt());
+    }
+
+    @Test
+    void testEntityLoadsAndFlushesAreRecordedPerRequest() throws Exception {
+        // Given
+        var flushes = perRequest("http.server.requests.flushes");
+        var entityLoads = perRequest("http.server.requests.entity.loads");
+        long requestsBefore = flushes.count();
+        // When
+        MvcResult added = addItem("entity-events-user", "SKUTEST4", null);
+        // Then
+        assertEquals(201, added.getResponse().getStatus());
+        assertEquals(requestsBefore + 1, flushes.count());
+        assertEquals(requestsBefore + 1, entityLoads.count());
+    }
+
+    private DistributionSummary perRequest(String name) {
+        return DistributionSummary.builder(name)
+                .tag("method", "POST")
+                .tag("uri", "/api/v1/carts/items")
+                .register(meterRegistry);
+    }
+
+    @SafeVarargs
+    private MvcResult addItems(String username, Map<String, Object>... items) throws Exception {
+        return mockMvc.perform(post("/api/v1/carts/items/batch")
+                .header("username", username)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(Map.of("items", List.of(items))))).andReturn();
+    }
+
+    private MvcResult addItem(String username, String itemId, String ifMatch) throws Exception {
+        var request = post("/api/v1/carts/items")
+                .header("username", username)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"itemId\":\"" + itemId + "\"}");
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request).andReturn();
+    }
+}
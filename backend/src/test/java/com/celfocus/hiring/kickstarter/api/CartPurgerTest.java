@@ -0,0 +1,96 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.StaleCartException;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CartPurgerTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private Inventory inventory;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Test
+    void testPurgeDeletesOnlyExpiredCartsInBatches() {
+        // Given
+        var meterRegistry = new SimpleMeterRegistry();
+        var purger = new CartPurger(cartStore, cartCache, inventory, meterRegistry,
+                Duration.ofDays(30), Duration.ofMinutes(10), 2, Duration.ZERO, 100);
+        int available = inventory.available("SKUTEST11").orElseThrow();
+        var abandoned = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            abandoned.add("abandoned-user-" + i);
+            cartService.addItemToCart(abandoned.get(i), new CartItemInput("SKUTEST11"));
+        }
+        cartService.getCart("abandoned-user-0");
+        cartService.addItemToCart("active-user", new CartItemInput("SKUTEST11"));
+        // only this test's abandoned carts are older than the cutoff, so carts other tests left behind are kept
+        var cutoff = Instant.parse("2000-01-02T00:00:00Z");
+        jdbcTemplate.update("UPDATE TB_CART SET UPDATED_AT = :updatedAt WHERE USER_ID IN (:userIds)", new MapSqlParameterSource()
+                .addValue("updatedAt", OffsetDateTime.parse("2000-01-01T00:00:00Z"))
+                .addValue("userIds", abandoned));
+        // When
+        int purged = purger.purge(cutoff);
+        // Then
+        assertEquals(5, purged);
+        for (String username : abandoned) {
+            assertTrue(cartStore.findVersion(username).isEmpty());
+        }
+        assertThrows(RuntimeException.class, () -> cartService.getCart("abandoned-user-0"));
+        assertEquals(1, cartService.getCart("active-user").getItems().size());
+        assertEquals(available - 1, inventory.available("SKUTEST11").orElseThrow());
+        assertEquals(5, meterRegistry.get("cart.expiry.purged").counter().count());
+        assertEquals(5, meterRegistry.get("cart.expiry.purged.lines").counter().count());
+        assertEquals(3, meterRegistry.get("cart.expiry.batch").timer().count());
+        cartService.clearCart("active-user");
+    }
+
+    @Test
+    void testBatchWithAChangedCartDeletesNothing() {
+        // Given
+        var idle = List.of("idle-user", "returning-user");
+        idle.forEach(username -> cartService.addItemToCart(username, new CartItemInput("SKUTEST11")));
+        jdbcTemplate.update("UPDATE TB_CART SET UPDATED_AT = :updatedAt WHERE USER_ID IN (:userIds)", new MapSqlParameterSource()
+                .addValue("updatedAt", OffsetDateTime.parse("2000-01-01T00:00:00Z"))
+                .addValue("userIds", idle));
+        var expired = cartStore.findExpired(Instant.parse("2000-01-02T00:00:00Z"), 100).stream()
+                .filter(cart -> idle.contains(cart.userId()))
+                .toList();
+        cartService.addItemToCart("returning-user", new CartItemInput("SKUTEST11"));
+        // When
+        assertThrows(StaleCartException.class, () -> cartStore.deleteCarts(expired));
+        // Then
+        assertEquals(2, expired.size());
+        assertEquals(1, cartStore.findSummary("idle-user").orElseThrow().itemCount());
+        assertEquals(2, cartStore.findSummary("returning-user").orElseThrow().itemCount());
+        cartService.clearCart("idle-user");
+        cartService.clearCart("returning-user");
+    }
+}
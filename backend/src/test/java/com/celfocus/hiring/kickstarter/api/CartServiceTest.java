@@ -0,0 +1,215 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemQuantityInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.db.repo.CartSummaryView;
+import com.celfocus.hiring.kickstarter.db.store.CartQuantityOverflowException;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.db.store.JournalCartStore;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.inventory.OutOfStockException;
+import com.celfocus.hiring.kickstarter.util.MinorUnits;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Test
+    void testGetCartWithoutLines() {
+        // Given
+        cartService.addItemToCart("empty-cart-user", new CartItemInput("SKUTEST3"));
+        cartService.removeItemFromCart("empty-cart-user", "SKUTEST3");
+        // When
+        var cart = cartService.getCart("empty-cart-user");
+        // Then
+        assertEquals("empty-cart-user", cart.getUserId());
+        assertTrue(cart.getItems().isEmpty());
+    }
+
+    @Test
+    void testGetCartReflectsMutationsAfterCaching() {
+        // Given
+        cartService.addItemToCart("cached-user", new CartItemInput("SKUTEST4"));
+        assertEquals(1, cartService.getCart("cached-user").getItems().get(0).getQuantity());
+        // When
+        cartService.addItemToCart("cached-user", new CartItemInput("SKUTEST4"));
+        // Then
+        assertEquals(2, cartService.getCart("cached-user").getItems().get(0).getQuantity());
+        cartService.clearCart("cached-user");
+        assertThrows(RuntimeException.class, () -> cartService.getCart("cached-user"));
+    }
+
+    @Test
+    void testAddItemsInBatch() {
+        // Given
+        cartService.addItemToCart("batch-user", new CartItemInput("SKUTEST5"));
+        // When
+        cartService.addItemsToCart("batch-user", new CartItemsInput(List.of(
+                new CartItemQuantityInput("SKUTEST5", 2),
+                new CartItemQuantityInput("SKUTEST6", 3),
+                new CartItemQuantityInput("SKUTEST6", 1))));
+        // Then
+        Map<String, Integer> quantities = cartService.getCart("batch-user").getItems().stream()
+                .collect(Collectors.toMap(CartItem::getItemId, CartItem::getQuantity));
+        assertEquals(Map.of("SKUTEST5", 3, "SKUTEST6", 4), quantities);
+        assertThrows(CartItemNotFoundException.class, () -> cartService.addItemsToCart("batch-user", new CartItemsInput(List.of(
+                new CartItemQuantityInput("SKUTEST7", 1),
+                new CartItemQuantityInput("UNKNOWN", 1)))));
+        assertEquals(2, cartService.getCart("batch-user").getItems().size());
+    }
+
+    @Test
+    void testCartSummaryFollowsEveryMutation() {
+        // Given
+        String username = "summary-user";
+        assertEquals(new CartSummaryView(username, 0, 0), cartService.getCartSummary(username));
+        // When
+        cartService.addItemToCart(username, new CartItemInput("SKUTEST12"));
+        cartService.addItemToCart(username, new CartItemInput("SKUTEST12"));
+        assertSummaryMatchesCart(username);
+        cartService.addItemsToCart(username, new CartItemsInput(List.of(
+                new CartItemQuantityInput("SKUTEST12", 2),
+                new CartItemQuantityInput("SKUTEST14", 3))));
+        assertSummaryMatchesCart(username);
+        cartService.removeItemFromCart(username, "SKUTEST12");
+        cartService.removeItemFromCart(username, "SKUTEST12");
+        // Then
+        assertSummaryMatchesCart(username);
+        assertEquals(3, cartService.getCartSummary(username).itemCount());
+        cartService.clearCart(username);
+        assertEquals(new CartSummaryView(username, 0, 0), cartService.getCartSummary(username));
+    }
+
+    private void assertSummaryMatchesCart(String username) {
+        var items = cartService.getCart(username).getItems();
+        var summary = cartService.getCartSummary(username);
+        assertEquals(items.stream().mapToInt(CartItem::getQuantity).sum(), summary.itemCount());
+        assertEquals(items.stream().map(i -> i.getPrice().multiply(BigDecimal.valueOf(i.getQuantity()))).reduce(BigDecimal.ZERO, BigDecimal::add),
+                MinorUnits.toDecimal(summary.subtotalMinorUnits()));
+    }
+
+    @Test
+    void testAddUnknownItemFails() {
+        assertThrows(CartItemNotFoundException.class, () -> cartService.addItemToCart("unknown-item-user", new CartItemInput("UNKNOWN")));
+        assertThrows(RuntimeException.class, () -> cartService.getCart("unknown-item-user"));
+    }
+
+    @Test
+    void testQuantityPastIntegerRangeIsRefused() {
+        assertQuantityPastIntegerRangeIsRefused(cartStore);
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"cart.store=journal", "cart.journal.directory=target/cart-service-test-journal"})
+    class WithJournalStore {
+
+        @Autowired
+        private CartStore journalStore;
+
+        @Test
+        void testQuantityPastIntegerRangeIsRefused() {
+            assertInstanceOf(JournalCartStore.class, journalStore);
+            assertQuantityPastIntegerRangeIsRefused(journalStore);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"catalog.file=target/test-classes/concurrent-adds-catalog.json", "catalog.watch=false"})
+    class WithLimitedStock {
+
+        @Autowired
+        private CartService limitedCartService;
+
+        @Test
+        void testConcurrentAddsGetExactlyTheStockAndLoseNoIncrements() throws Exception {
+            // Given
+            String username = "concurrent-user";
+            int threads = 16;
+            int addsPerThread = 25;
+            // 200 adds for each SKU, of which the catalog has 150 and 170 units
+            var skus = List.of("SKULIMITED1", "SKULIMITED2");
+            var granted = new ConcurrentHashMap<String, AtomicInteger>();
+            var rejected = new ConcurrentHashMap<String, AtomicInteger>();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<?>>();
+            // When
+            try {
+                for (int t = 0; t < threads; t++) {
+                    String sku = skus.get(t % 2);
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < addsPerThread; i++) {
+                            try {
+                                limitedCartService.addItemToCart(username, new CartItemInput(sku));
+                                granted.computeIfAbsent(sku, key -> new AtomicInteger()).incrementAndGet();
+                            } catch (OutOfStockException e) {
+                                rejected.computeIfAbsent(sku, key -> new AtomicInteger()).incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            // Then
+            assertEquals(150, granted.get("SKULIMITED1").get());
+            assertEquals(50, rejected.get("SKULIMITED1").get());
+            assertEquals(170, granted.get("SKULIMITED2").get());
+            assertEquals(30, rejected.get("SKULIMITED2").get());
+            Map<String, Integer> quantities = limitedCartService.getCart(username).getItems().stream()
+                    .collect(Collectors.toMap(CartItem::getItemId, CartItem::getQuantity));
+            assertEquals(Map.of("SKULIMITED1", 150, "SKULIMITED2", 170), quantities);
+            assertEquals(320, limitedCartService.getCartSummary(username).itemCount());
+            limitedCartService.clearCart(username);
+        }
+    }
+
+    private static void assertQuantityPastIntegerRangeIsRefused(CartStore store) {
+        // Given
+        String username = "overflow-user";
+        // straight to the store, as no SKU has that much stock
+        store.addItems(username, Map.of("SKUTEST20", Integer.MAX_VALUE), Map.of("SKUTEST20", BigDecimal.ONE), null);
+        try {
+            // When / Then
+            assertThrows(CartQuantityOverflowException.class, () -> store.addItem(username, "SKUTEST20", () -> BigDecimal.ONE, null));
+            assertThrows(CartQuantityOverflowException.class, () -> store.addItems(username, Map.of("SKUTEST20", 1), Map.of("SKUTEST20", BigDecimal.ONE), null));
+            // a new line fits, but the cart's item count would not
+            assertThrows(CartQuantityOverflowException.class, () -> store.addItem(username, "SKUTEST19", () -> BigDecimal.ONE, null));
+            assertEquals(Integer.MAX_VALUE, store.findSummary(username).orElseThrow().itemCount());
+            assertEquals(1, store.findCartLines(username).size());
+        } finally {
+            store.clearCart(username, null);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogHolder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductAPIControllerTest {
+
+    // JSON reads 109.0 as a double, Smile keeps it a BigDecimal
+    private static final Comparator<JsonNode> SAME_NUMBERS = (a, b) -> a.isNumber() && b.isNumber()
+            ? a.decimalValue().compareTo(b.decimalValue())
+            : a.equals(b) ? 0 : 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RenderedCatalogCache renderedCatalogCache;
+
+    @Autowired
+    private ProductCatalogHolder catalogHolder;
+
+    @Test
+    void testCursorWalksTheWholeCatalogInSkuOrder() throws Exception {
+        // Given
+        var skus = new ArrayList<String>();
+        String cursor = null;
+        int pages = 0;
+        // When
+        do {
+            var request = get("/api/v1/products").param("limit", "6");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = body(mockMvc.perform(request).andReturn());
+            page.get("items").forEach(item -> skus.add(item.get("sku").asText()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+        // Then
+        assertEquals(4, pages);
+        assertEquals(20, skus.size());
+        assertEquals(skus.stream().sorted().distinct().toList(), skus);
+    }
+
+    @Test
+    void testCategoryFilterWithSparseFields() throws Exception {
+        // When
+        JsonNode page = body(mockMvc.perform(get("/api/v1/products")
+                .param("category", "jewelery")
+                .param("fields", "name,price")).andReturn());
+        // Then
+        var skus = new ArrayList<String>();
+        page.get("items").forEach(item -> {
+            skus.add(item.get("sku").asText());
+            assertTrue(item.has("name"));
+            assertTrue(item.has("price"));
+            assertFalse(item.has("description"));
+            assertFalse(item.has("category"));
+        });
+        assertEquals(List.of("SKUTEST5", "SKUTEST6", "SKUTEST7", "SKUTEST8"), skus);
+        assertTrue(page.get("nextCursor").isNull());
+    }
+
+    @Test
+    void testNotModifiedWhileCatalogIsUnchanged() throws Exception {
+        // Given
+        MvcResult first = mockMvc.perform(get("/api/v1/products/SKUTEST2")).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        // When
+        MvcResult second = mockMvc.perform(get("/api/v1/products/SKUTEST2").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        MvcResult listing = mockMvc.perform(get("/api/v1/products").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        // Then
+        assertEquals(200, first.getResponse().getStatus());
+        assertNotNull(etag);
+        assertEquals(304, second.getResponse().getStatus());
+        assertEquals(304, listing.getResponse().getStatus());
+        assertEquals(0, second.getResponse().getContentLength());
+    }
+
+    @Test
+    void testEachEncodingHasItsOwnETag() throws Exception {
+        // Given
+        String jsonTag = mockMvc.perform(get("/api/v1/products/SKUTEST2")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        var tags = new ArrayList<String>();
+        for (String accept : List.of("application/cbor", "application/x-jackson-smile", "*/*", "application/*",
+                "application/*;q=0.5, application/cbor", "application/cbor;q=0.4, application/json")) {
+            // When
+            MvcResult result = mockMvc.perform(get("/api/v1/products/SKUTEST2").header(HttpHeaders.ACCEPT, accept)).andReturn();
+            // Then
+            String contentType = result.getResponse().getContentType();
+            String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+            String expected = contentType.startsWith(MediaType.APPLICATION_JSON_VALUE) ? jsonTag
+                    : jsonTag.substring(0, jsonTag.length() - 1) + (contentType.contains("smile") ? "-smile\"" : "-cbor\"");
+            assertEquals(expected, etag, accept);
+            tags.add(etag);
+        }
+        MvcResult cborWithJsonTag = mockMvc.perform(get("/api/v1/products/SKUTEST2").accept("application/cbor")
+                .header(HttpHeaders.IF_NONE_MATCH, jsonTag)).andReturn();
+        MvcResult cborWithCborTag = mockMvc.perform(get("/api/v1/products/SKUTEST2").accept("application/cbor")
+                .header(HttpHeaders.IF_NONE_MATCH, tags.get(0))).andReturn();
+        assertNotEquals(tags.get(0), tags.get(1));
+        assertNotEquals(jsonTag, tags.get(0));
+        assertEquals(200, cborWithJsonTag.getResponse().getStatus());
+        assertEquals(304, cborWithCborTag.getResponse().getStatus());
+    }
+
+    @Test
+    void testSearchReturnsRankedMatches() throws Exception {
+        // When
+        JsonNode result = body(mockMvc.perform(get("/api/v1/products/search")
+                .param("q", "ssd")
+                .param("limit", "2")
+                .param("fields", "name")).andReturn());
+        // Then
+        assertEquals(2, result.get("items").size());
+        result.get("items").forEach(item -> assertTrue(item.get("name").asText().toLowerCase().contains("ssd")));
+    }
+
+    @Test
+    void testInvalidRequestsAreRejected() throws Exception {
+        // Then
+        assertEquals(400, mockMvc.perform(get("/api/v1/products").param("limit", "0")).andReturn().getResponse().getStatus());
+        assertEquals(400, mockMvc.perform(get("/api/v1/products").param("fields", "secret")).andReturn().getResponse().getStatus());
+        assertEquals(400, mockMvc.perform(get("/api/v1/products").param("cursor", "%%%")).andReturn().getResponse().getStatus());
+        assertEquals(404, mockMvc.perform(get("/api/v1/products/UNKNOWN")).andReturn().getResponse().getStatus());
+        assertEquals(406, mockMvc.perform(get("/api/v1/products").accept(MediaType.TEXT_HTML)).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void testSmileCarriesTheSameSparseFields() throws Exception {
+        // When
+        MvcResult json = mockMvc.perform(get("/api/v1/products").param("fields", "name,price")).andReturn();
+        MvcResult smile = mockMvc.perform(get("/api/v1/products").param("fields", "name,price")
+                .accept("application/x-jackson-smile")).andReturn();
+        // Then
+        assertEquals("application/x-jackson-smile", smile.getResponse().getContentType());
+        var decoded = new SmileMapper().readTree(smile.getResponse().getContentAsByteArray());
+        assertTrue(objectMapper.readTree(json.getResponse().getContentAsByteArray()).equals(SAME_NUMBERS, decoded));
+        assertTrue(smile.getResponse().getContentAsByteArray().length < json.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void testRenderedJsonMatchesSerializedJson() throws Exception {
+        // Given
+        String allFields = "sku,name,description,price,category,imageUrl";
+        awaitRendering();
+        // When
+        MvcResult rendered = mockMvc.perform(get("/api/v1/products").param("limit", "4").param("category", "electronics")).andReturn();
+        MvcResult serialized = mockMvc.perform(get("/api/v1/products").param("limit", "4").param("category", "electronics")
+                .param("fields", allFields)).andReturn();
+        MvcResult renderedSearch = mockMvc.perform(get("/api/v1/products/search").param("q", "women")).andReturn();
+        MvcResult serializedSearch = mockMvc.perform(get("/api/v1/products/search").param("q", "women")
+                .param("fields", allFields)).andReturn();
+        MvcResult renderedProduct = mockMvc.perform(get("/api/v1/products/SKUTEST14")).andReturn();
+        MvcResult serializedProduct = mockMvc.perform(get("/api/v1/products/SKUTEST14").param("fields", allFields)).andReturn();
+        // Then
+        assertArrayEquals(serialized.getResponse().getContentAsByteArray(), rendered.getResponse().getContentAsByteArray());
+        assertArrayEquals(serializedSearch.getResponse().getContentAsByteArray(), renderedSearch.getResponse().getContentAsByteArray());
+        assertArrayEquals(serializedProduct.getResponse().getContentAsByteArray(), renderedProduct.getResponse().getContentAsByteArray());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, rendered.getResponse().getContentType());
+        assertEquals("Accept, Accept-Encoding", rendered.getResponse().getHeader(HttpHeaders.VARY));
+        assertFalse(body(rendered).get("nextCursor").isNull());
+    }
+
+    @Test
+    void testGzipWhenAccepted() throws Exception {
+        // Given
+        awaitRendering();
+        MvcResult identity = mockMvc.perform(get("/api/v1/products")).andReturn();
+        MvcResult identityPage = mockMvc.perform(get("/api/v1/products").param("limit", "3").param("cursor", "U0tVVEVTVDE")).andReturn();
+        // When
+        MvcResult gzipped = mockMvc.perform(get("/api/v1/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8")).andReturn();
+        MvcResult chained = mockMvc.perform(get("/api/v1/products").param("limit", "3").param("cursor", "U0tVVEVTVDE")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn();
+        MvcResult product = mockMvc.perform(get("/api/v1/products/SKUTEST1")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn();
+        MvcResult refused = mockMvc.perform(get("/api/v1/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")).andReturn();
+        String etag = gzipped.getResponse().getHeader(HttpHeaders.ETAG);
+        MvcResult notModified = mockMvc.perform(get("/api/v1/products")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        // Then
+        assertEquals("gzip", gzipped.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(identity.getResponse().getContentAsByteArray(), gunzip(gzipped));
+        assertTrue(gzipped.getResponse().getContentAsByteArray().length < identity.getResponse().getContentAsByteArray().length / 2);
+        assertEquals("W/" + identity.getResponse().getHeader(HttpHeaders.ETAG), etag);
+        assertEquals("gzip", chained.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(identityPage.getResponse().getContentAsByteArray(), gunzip(chained));
+        assertEquals("gzip", product.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("SKUTEST1", objectMapper.readTree(gunzip(product)).get("sku").asText());
+        assertNull(refused.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(304, notModified.getResponse().getStatus());
+        assertEquals(etag, notModified.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testRenderingFollowsACatalogReload() throws Exception {
+        // Given
+        awaitRendering();
+        String previous = mockMvc.perform(get("/api/v1/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // When
+        assertTrue(catalogHolder.reload());
+        // the previous rendering must not answer for the new catalog, whether or not it is rendered yet
+        MvcResult reloaded = mockMvc.perform(get("/api/v1/products")).andReturn();
+        awaitRendering();
+        MvcResult rendered = mockMvc.perform(get("/api/v1/products")).andReturn();
+        MvcResult serialized = mockMvc.perform(get("/api/v1/products").param("fields", "sku")).andReturn();
+        // Then
+        String current = "\"" + Long.toString(catalogHolder.current().version(), 36) + "\"";
+        assertNotEquals(previous, current);
+        assertEquals(current, reloaded.getResponse().getHeader(HttpHeaders.ETAG));
+        assertSame(catalogHolder.current(), renderedCatalogCache.current(catalogHolder.current()).catalog());
+        assertEquals(current, rendered.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(current, serialized.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    // catalogs are rendered in the background; until then the same requests are served by Jackson
+    private void awaitRendering() throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (renderedCatalogCache.current(catalogHolder.current()) == null) {
+            assertTrue(System.nanoTime() < deadline, "catalog not rendered");
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] gunzip(MvcResult result) throws IOException {
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private JsonNode body(MvcResult result) throws Exception {
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
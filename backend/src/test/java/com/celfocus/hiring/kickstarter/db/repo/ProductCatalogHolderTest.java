@@ -0,0 +1,146 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogHolderTest {
+
+    @TempDir
+    Path catalogDir;
+
+    @Test
+    void testReloadPublishesNewSnapshot() throws Exception {
+        // Given
+        Path catalogFile = writeCatalog("catalog.json", "9.99");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, false);
+        holder.start();
+        ProductCatalog before = holder.current();
+        // When
+        writeCatalog("catalog.json", "19.99");
+        assertTrue(holder.reload());
+        // Then
+        assertEquals(new BigDecimal("9.99"), before.findBySku("SKU1").orElseThrow().getPrice());
+        assertEquals(new BigDecimal("19.99"), holder.current().findBySku("SKU1").orElseThrow().getPrice());
+        assertTrue(holder.current().version() > before.version());
+    }
+
+    @Test
+    void testBrokenCatalogKeepsPreviousSnapshot() throws Exception {
+        // Given
+        Path catalogFile = writeCatalog("catalog.json", "9.99");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, false);
+        holder.start();
+        ProductCatalog before = holder.current();
+        // When
+        Files.writeString(catalogFile, "[{\"sku\": \"SKU1\", ");
+        // Then
+        assertFalse(holder.reload());
+        assertSame(before, holder.current());
+    }
+
+    @Test
+    void testProductWithSubCentPriceIsSkipped() throws Exception {
+        // Given
+        Path catalogFile = writeCatalog("catalog.json", "9.99");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, false);
+        holder.start();
+        // When
+        writeCatalog("catalog.json", "9.999");
+        // Then
+        assertTrue(holder.reload());
+        assertTrue(holder.current().findBySku("SKU1").isEmpty());
+        assertEquals(new BigDecimal("5.00"), holder.current().findBySku("SKU2").orElseThrow().getPrice());
+    }
+
+    @Test
+    void testWatchedFileIsReloaded() throws Exception {
+        // Given
+        Path catalogFile = writeCatalog("catalog.json", "9.99");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), true, Duration.ofMillis(50), false);
+        holder.start();
+        try {
+            // When
+            Path staged = writeCatalog("catalog.json.tmp", "29.99");
+            Files.move(staged, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Then
+            await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                    assertEquals(new BigDecimal("29.99"), holder.current().findBySku("SKU1").orElseThrow().getPrice()));
+        } finally {
+            holder.stop();
+        }
+    }
+
+    @Test
+    void testBackgroundLoadIsAwaitedByReaders() throws Exception {
+        // Given
+        Path catalogFile = writeCatalog("catalog.json", "9.99");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, true);
+        // When
+        holder.start();
+        try {
+            // Then
+            assertEquals(new BigDecimal("9.99"), holder.current().findBySku("SKU1").orElseThrow().getPrice());
+            assertTrue(holder.isLoaded());
+        } finally {
+            holder.stop();
+        }
+    }
+
+    @Test
+    void testBrokenCatalogInBackgroundIsNotReadyUntilReloaded() throws Exception {
+        // Given
+        Path catalogFile = catalogDir.resolve("catalog.json");
+        Files.writeString(catalogFile, "[{\"sku\": \"SKU1\", ");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, true);
+        holder.start();
+        try {
+            // When
+            assertThrows(IllegalStateException.class, holder::current);
+            assertFalse(holder.isLoaded());
+            writeCatalog("catalog.json", "9.99");
+            // Then
+            assertTrue(holder.reload());
+            assertTrue(holder.isLoaded());
+            assertEquals(new BigDecimal("9.99"), holder.current().findBySku("SKU1").orElseThrow().getPrice());
+        } finally {
+            holder.stop();
+        }
+    }
+
+    @Test
+    void testFailedBackgroundLoadIsRetriedByTheNextReader() throws Exception {
+        // Given
+        Path catalogFile = catalogDir.resolve("catalog.json");
+        Files.writeString(catalogFile, "[{\"sku\": \"SKU1\", ");
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, true);
+        holder.start();
+        try {
+            assertThrows(IllegalStateException.class, holder::current);
+            // When
+            writeCatalog("catalog.json", "9.99");
+            // Then
+            assertEquals(new BigDecimal("9.99"), holder.current().findBySku("SKU1").orElseThrow().getPrice());
+            assertTrue(holder.isLoaded());
+        } finally {
+            holder.stop();
+        }
+    }
+
+    private Path writeCatalog(String fileName, String price) throws Exception {
+        return Files.writeString(catalogDir.resolve(fileName), """
+                [{"sku": "SKU1", "name": "Product 1", "price": %s, "description": "First", "category": "c1"},
+                 {"sku": "SKU2", "name": "Product 2", "price": 5, "description": "Second", "category": "c2"}]
+                """.formatted(price));
+    }
+}
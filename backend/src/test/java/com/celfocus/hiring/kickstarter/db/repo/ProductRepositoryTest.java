@@ -4,7 +4,11 @@ import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,4 +25,39 @@ class ProductRepositoryTest {
         assertTrue(product.isPresent());
         assertEquals("Slim-fitting style, contrast raglan long sleeve, three-button henley placket, light weight & soft fabric for breathable and comfortable wearing. And Solid stitched shirts with round neck made for durability and a great fit for casual fashion wear and diehard baseball fans. The Henley style round neckline includes a three-button placket.", product.get().getDescription());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testProductPriceIsKeptInMinorUnits() {
+        // Given
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+        // When
+        ProductEntity product = productRepository.findBySku("SKUTEST2").orElseThrow();
+        // Then
+        assertEquals(2230, product.getPriceMinorUnits());
+        assertEquals(new BigDecimal("22.30"), product.getPrice());
+        assertEquals("men's clothing", product.getCategory());
+    }
+
+    @Test
+    void testFindProductsByCategory() {
+        // Given
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+        // When
+        List<ProductEntity> products = productRepository.findByCategory("jewelery");
+        // Then
+        assertEquals(List.of("SKUTEST5", "SKUTEST6", "SKUTEST7", "SKUTEST8"), products.stream().map(ProductEntity::getSku).toList());
+        assertTrue(productRepository.findByCategory("unknown").isEmpty());
+        assertTrue(productRepository.findBySku("UNKNOWN").isEmpty());
+    }
+
+    @Test
+    void testFindProductsBySkus() {
+        // Given
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+        // When
+        Map<String, ProductEntity> products = productRepository.findAllBySku(Set.of("SKUTEST1", "SKUTEST20", "UNKNOWN"));
+        // Then
+        assertEquals(Set.of("SKUTEST1", "SKUTEST20"), products.keySet());
+        assertEquals("SKUTEST20", products.get("SKUTEST20").getSku());
+    }
+}
@@ -0,0 +1,91 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    @Test
+    void testNameMatchesRankAboveDescriptionMatches() {
+        // Given
+        var catalog = ProductCatalog.of(List.of(
+                product("SKU1", "Leather Wallet", "accessories", "Fits every jacket pocket."),
+                product("SKU2", "Rain Jacket", "women's clothing", "Light and waterproof."),
+                product("SKU3", "Plain Shirt", "men's clothing", "Cotton.")));
+        // When
+        List<ProductEntity> found = catalog.search("jacket ", 10);
+        // Then
+        assertEquals(List.of("SKU2", "SKU1"), skus(found));
+    }
+
+    @Test
+    void testLastWordIsMatchedAsPrefix() {
+        // Given
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+        // When
+        List<ProductEntity> typeahead = productRepository.search("jack", 10);
+        List<ProductEntity> narrowed = productRepository.search("women jack", 10);
+        List<ProductEntity> completeWord = productRepository.search("jack ", 10);
+        // Then
+        assertFalse(typeahead.isEmpty());
+        assertTrue(typeahead.stream().allMatch(p -> p.getName().toLowerCase().contains("jacket")
+                || p.getDescription().toLowerCase().contains("jack")));
+        assertFalse(narrowed.isEmpty());
+        assertTrue(narrowed.size() < typeahead.size());
+        assertTrue(narrowed.stream().allMatch(p -> "women's clothing".equals(p.getCategory())));
+        assertTrue(completeWord.isEmpty());
+    }
+
+    @Test
+    void testSearchIgnoresCaseAndAccents() {
+        // Given
+        var catalog = ProductCatalog.of(List.of(product("SKU1", "Crème Brûlée Torch", "kitchen", "For desserts.")));
+        // When
+        List<ProductEntity> found = catalog.search("CREME brul", 10);
+        // Then
+        assertEquals(List.of("SKU1"), skus(found));
+        assertTrue(catalog.search("unknown words", 10).isEmpty());
+        assertTrue(catalog.search("", 10).isEmpty());
+    }
+
+    @Test
+    void testRebuildOnlyReanalyzesChangedProducts() {
+        // Given
+        var before = ProductCatalog.of(List.of(
+                product("SKU1", "Leather Wallet", "accessories", "Brown."),
+                product("SKU2", "Rain Jacket", "women's clothing", "Waterproof.")));
+        // When
+        var after = ProductCatalog.builder()
+                .previous(before)
+                .add(product("SKU1", "Leather Wallet", "accessories", "Brown."))
+                .add(product("SKU2", "Rain Coat", "women's clothing", "Waterproof."))
+                .add(product("SKU3", "Denim Jacket", "men's clothing", "Blue."))
+                .build();
+        // Then
+        assertEquals(2, before.reindexed());
+        assertEquals(2, after.reindexed());
+        assertEquals(List.of("SKU3"), skus(after.search("jacket", 10)));
+        assertEquals(List.of("SKU1"), skus(after.search("wallet", 10)));
+        assertEquals(List.of("SKU2"), skus(before.search("jacket", 10)));
+    }
+
+    private static ProductEntity product(String sku, String name, String category, String description) {
+        var product = new ProductEntity();
+        product.setSku(sku);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(BigDecimal.ONE);
+        return product;
+    }
+
+    private static List<String> skus(List<ProductEntity> products) {
+        return products.stream().map(ProductEntity::getSku).toList();
+    }
+}
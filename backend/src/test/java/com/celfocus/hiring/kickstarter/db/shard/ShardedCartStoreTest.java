@@ -0,0 +1,177 @@
+package com.celfocus.hiring.kickstarter.db.shard;
+
+import com.celfocus.hiring.kickstarter.api.CartCache;
+import com.celfocus.hiring.kickstarter.api.CartPurger;
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.celfocus.hiring.kickstarter.inventory.Inventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "cart.shards.count=3",
+        "cart.shards.previous-count=4",
+        "cart.shards.url=jdbc:h2:mem:sharded-cart-store-test-{shard};DB_CLOSE_DELAY=-1"
+})
+class ShardedCartStoreTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("2.50");
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private ShardedCartStore shardedCartStore;
+
+    @Autowired
+    private CartShardRebalancer rebalancer;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private Inventory inventory;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Test
+    void testEachCartIsStoredOnItsShardOnly() {
+        // Given
+        var usernames = List.of("ana", "bruno", "carla", "diogo", "eva", "filipe", "gabriela", "hugo", "ines", "joao");
+        // When
+        for (String username : usernames) {
+            cartService.addItemToCart(username, new CartItemInput("SKUTEST14"));
+        }
+        // Then
+        assertSame(shardedCartStore, cartStore);
+        var used = new HashSet<Integer>();
+        for (String username : usernames) {
+            int shard = shardedCartStore.shardIndexOf(username);
+            used.add(shard);
+            for (int other = 0; other < 4; other++) {
+                assertEquals(other == shard ? 1 : 0, countCarts(other, username));
+            }
+            assertEquals(1, cartService.getCartSummary(username).itemCount());
+        }
+        assertTrue(used.size() > 1);
+        // shard 0 is a database of its own, not the main one
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM TB_CART WHERE USER_ID IN (:userIds)",
+                new MapSqlParameterSource("userIds", usernames), Integer.class));
+        assertEquals(usernames.size(), reserved("SKUTEST14"));
+        usernames.forEach(cartService::clearCart);
+    }
+
+    @Test
+    void testRebalanceMovesMisplacedCarts() {
+        // Given
+        var shards = cartStore.shards();
+        for (int i = 0; i < 12; i++) {
+            String username = "moving-user-" + i;
+            int wrong = (shardedCartStore.shardIndexOf(username) + 1 + i % 3) % 4;
+            shards.get(wrong).addItems(username, Map.of("SKU1", i + 1, "SKU2", 1), Map.of("SKU1", PRICE, "SKU2", PRICE), null);
+        }
+        shards.get(3).addItem("empty-user", "SKU1", () -> PRICE, null);
+        shards.get(3).removeItem("empty-user", "SKU1", null);
+        // When
+        int moved = rebalancer.rebalance();
+        // Then
+        assertEquals(12, moved);
+        for (int i = 0; i < 12; i++) {
+            var summary = cartStore.findSummary("moving-user-" + i).orElseThrow();
+            assertEquals(i + 2, summary.itemCount());
+            assertEquals((i + 2) * 250L, summary.subtotalMinorUnits());
+        }
+        assertEquals(0, countCarts(3, null));
+        assertEquals(0, rebalancer.rebalance());
+        for (int i = 0; i < 12; i++) {
+            cartStore.clearCart("moving-user-" + i, null);
+        }
+    }
+
+    @Test
+    void testRebalanceNeverDropsACart() {
+        // Given
+        var shards = cartStore.shards();
+        int home = shardedCartStore.shardIndexOf("two-carts-user");
+        int wrong = (home + 1) % 4;
+        shards.get(wrong).addItems("two-carts-user", Map.of("SKU1", 3), Map.of("SKU1", PRICE), null);
+        shards.get(home).addItems("two-carts-user", Map.of("SKU2", 1), Map.of("SKU2", PRICE), null);
+        int copied = shardedCartStore.shardIndexOf("copied-user");
+        shards.get((copied + 1) % 4).addItems("copied-user", Map.of("SKUTEST14", 2), Map.of("SKUTEST14", PRICE), null);
+        shards.get(copied).addItems("copied-user", Map.of("SKUTEST14", 2), Map.of("SKUTEST14", PRICE), null);
+        inventory.reserve(Map.of("SKUTEST14", 4));
+        int available = inventory.available("SKUTEST14").orElseThrow();
+        // When
+        rebalancer.rebalance();
+        // Then
+        assertEquals(1, countCarts(wrong, "two-carts-user"));
+        assertEquals(1, countCarts(home, "two-carts-user"));
+        assertEquals(0, countCarts((copied + 1) % 4, "copied-user"));
+        assertEquals(2, cartStore.findSummary("copied-user").orElseThrow().itemCount());
+        assertEquals(available + 2, inventory.available("SKUTEST14").orElseThrow());
+        shards.get(wrong).clearCart("two-carts-user", null);
+        cartStore.clearCart("two-carts-user", null);
+        cartStore.clearCart("copied-user", null);
+        inventory.release("SKUTEST14", 2);
+    }
+
+    @Test
+    void testPurgeReachesEveryShard() {
+        // Given
+        var purger = new CartPurger(cartStore, cartCache, inventory, new SimpleMeterRegistry(),
+                Duration.ZERO, Duration.ofMinutes(10), 2, Duration.ZERO, 100);
+        int available = inventory.available("SKUTEST14").orElseThrow();
+        var idle = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            idle.add("idle-user-" + i);
+            cartService.addItemToCart(idle.get(i), new CartItemInput("SKUTEST14"));
+        }
+        // changed long before now, whatever the clock's resolution
+        var params = new MapSqlParameterSource()
+                .addValue("updatedAt", OffsetDateTime.parse("2000-01-01T00:00:00Z"))
+                .addValue("userIds", idle);
+        for (int shard = 0; shard < 4; shard++) {
+            CartShards.on(shard, () -> jdbcTemplate.update("UPDATE TB_CART SET UPDATED_AT = :updatedAt WHERE USER_ID IN (:userIds)", params));
+        }
+        // When
+        int purged = purger.purge();
+        // Then
+        assertEquals(10, purged);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cartStore.findVersion("idle-user-" + i).isEmpty());
+        }
+        assertEquals(0, reserved("SKUTEST14"));
+        assertEquals(available, inventory.available("SKUTEST14").orElseThrow());
+    }
+
+    private long reserved(String sku) {
+        return cartStore.findReservedQuantities().stream()
+                .filter(view -> view.sku().equals(sku))
+                .mapToLong(view -> view.quantity())
+                .sum();
+    }
+
+    private int countCarts(int shard, String username) {
+        var sql = username == null ? "SELECT COUNT(*) FROM TB_CART" : "SELECT COUNT(*) FROM TB_CART WHERE USER_ID = :userId";
+        return CartShards.on(shard, () -> jdbcTemplate.queryForObject(sql, new MapSqlParameterSource("userId", username), Integer.class));
+    }
+}
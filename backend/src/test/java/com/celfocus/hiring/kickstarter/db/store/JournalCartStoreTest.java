@@ -0,0 +1,263 @@
+package com.celfocus.hiring.kickstarter.db.store;
+
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalCartStoreTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("2.50");
+
+    @TempDir
+    Path journalDir;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    @Test
+    void testCrashRecoveryReplaysEveryMutation() {
+        // Given
+        var store = open(DataSize.ofMegabytes(1));
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        store.addItems("alice", Map.of("SKU2", 3, "SKU1", 2), Map.of("SKU1", PRICE, "SKU2", new BigDecimal("10.00")), null);
+        store.removeItem("alice", "SKU2", null);
+        store.addItem("bob", "SKU3", () -> PRICE, null);
+        store.clearCart("bob", null);
+        store.addItem("carol", "SKU4", () -> PRICE, null);
+        store.removeItem("carol", "SKU4", null);
+        // When
+        var recovered = open(DataSize.ofMegabytes(1));
+        // Then
+        assertSameCarts(store, recovered, "alice", "bob", "carol");
+        assertEquals(4, recovered.findSummary("alice").orElseThrow().itemCount());
+        assertEquals(new CartVersion(1, 4), recovered.findVersion("alice").orElseThrow());
+        assertTrue(recovered.findCartLines("bob").isEmpty());
+        assertEquals(1, recovered.findCartLines("carol").size());
+        assertNull(recovered.findCartLines("carol").get(0).itemId());
+        assertEquals(4, recovered.addItem("dave", "SKU1", () -> PRICE, null).cartId());
+    }
+
+    @Test
+    void testTornRecordIsDiscardedAndOverwritten() throws IOException {
+        // Given
+        var store = open(DataSize.ofMegabytes(1));
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        var beforeTornWrite = store.findCartLines("alice");
+        store.addItem("alice", "SKU2", () -> PRICE, null);
+        corruptLastRecord();
+        // When
+        var recovered = open(DataSize.ofMegabytes(1));
+        recovered.addItem("alice", "SKU3", () -> PRICE, null);
+        var reopened = open(DataSize.ofMegabytes(1));
+        // Then
+        assertEquals(1, beforeTornWrite.size());
+        assertEquals(List.of("SKU1", "SKU3"), reopened.findCartLines("alice").stream().map(line -> line.itemId()).toList());
+        assertEquals(new CartVersion(1, 2), reopened.findVersion("alice").orElseThrow());
+        assertSameCarts(recovered, reopened, "alice");
+    }
+
+    @Test
+    void testSnapshotCompactsTheJournal() throws IOException {
+        // Given
+        var store = open(DataSize.ofBytes(512));
+        for (int i = 0; i < 100; i++) {
+            store.addItem("user-" + i % 10, "SKU" + i % 7, () -> PRICE, null);
+        }
+        assertTrue(countFiles(".journal") > 1);
+        var lastCart = store.findVersion("user-9").orElseThrow();
+        store.clearCart("user-9", null);
+        // When
+        assertEquals(9, store.snapshot());
+        store.addItem("user-0", "SKU1", () -> PRICE, null);
+        var recovered = open(DataSize.ofBytes(512));
+        // Then
+        assertEquals(1, countFiles(".snapshot"));
+        assertEquals(1, countFiles(".journal"));
+        for (int i = 0; i < 10; i++) {
+            assertSameCarts(store, recovered, "user-" + i);
+        }
+        assertTrue(recovered.addItem("user-9", "SKU1", () -> PRICE, null).cartId() > lastCart.cartId());
+    }
+
+    @Test
+    void testStaleMutationsWriteNothing() {
+        // Given
+        var store = open(DataSize.ofMegabytes(1));
+        var version = store.addItem("alice", "SKU1", () -> PRICE, null);
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        // When
+        assertThrows(StaleCartException.class, () -> store.addItem("alice", "SKU2", () -> PRICE, version));
+        assertThrows(StaleCartException.class, () -> store.removeItem("alice", "SKU1", version));
+        assertThrows(StaleCartException.class, () -> store.removeItem("alice", "UNKNOWN", version));
+        assertThrows(StaleCartException.class, () -> store.clearCart("alice", version));
+        assertThrows(StaleCartException.class, () -> store.clearCart("nobody", version));
+        // Then
+        var recovered = open(DataSize.ofMegabytes(1));
+        assertSameCarts(store, recovered, "alice", "nobody");
+        assertEquals(new CartVersion(1, 2), recovered.findVersion("alice").orElseThrow());
+        assertTrue(recovered.removeItem("alice", "UNKNOWN", new CartVersion(1, 2)).isEmpty());
+    }
+
+    @Test
+    void testConcurrentMutationsReplayInOrder() throws Exception {
+        // Given
+        var store = open(DataSize.ofKilobytes(4));
+        int threads = 8;
+        int addsPerThread = 50;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        // When
+        try {
+            for (int t = 0; t < threads; t++) {
+                String own = "user-" + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < addsPerThread; i++) {
+                        store.addItem("shared", "SKU" + i % 3, () -> PRICE, null);
+                        store.addItem(own, "SKU1", () -> PRICE, null);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        var recovered = open(DataSize.ofKilobytes(4));
+        // Then
+        assertEquals(threads * addsPerThread, recovered.findSummary("shared").orElseThrow().itemCount());
+        assertEquals(threads * addsPerThread, recovered.findVersion("shared").orElseThrow().version());
+        assertSameCarts(store, recovered, "shared");
+        for (int t = 0; t < threads; t++) {
+            assertSameCarts(store, recovered, "user-" + t);
+        }
+    }
+
+    @Test
+    void testExpiredCartsAreDeletedTogetherAndStayDeleted() {
+        // Given
+        var store = open(DataSize.ofMegabytes(1));
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        clock.advance(Duration.ofSeconds(1));
+        store.addItem("bob", "SKU2", () -> PRICE, null);
+        store.addItem("bob", "SKU3", () -> PRICE, null);
+        clock.advance(Duration.ofSeconds(1));
+        var cutoff = clock.instant();
+        clock.advance(Duration.ofSeconds(1));
+        store.addItem("carol", "SKU1", () -> PRICE, null);
+        var expired = store.findExpired(cutoff, 10);
+        var stale = store.findExpired(cutoff, 1);
+        store.addItem("alice", "SKU1", () -> PRICE, null);
+        // When
+        assertThrows(StaleCartException.class, () -> store.deleteCarts(expired));
+        var removed = store.deleteCarts(store.findExpired(cutoff, 10));
+        var recovered = open(DataSize.ofMegabytes(1));
+        // Then
+        assertEquals(List.of("alice", "bob"), expired.stream().map(cart -> cart.userId()).toList());
+        assertEquals(List.of("alice"), stale.stream().map(cart -> cart.userId()).toList());
+        assertEquals(List.of("SKU2", "SKU3"), removed.stream().map(line -> line.itemId()).toList());
+        assertSameCarts(store, recovered, "alice", "bob", "carol");
+        assertTrue(recovered.findVersion("bob").isEmpty());
+        assertTrue(recovered.findExpired(cutoff, 10).isEmpty());
+        var later = clock.instant().plusSeconds(1);
+        assertEquals(store.findExpired(later, 10), recovered.findExpired(later, 10));
+    }
+
+    // Never stopped, so every recovery here starts from the state a crash would leave behind.
+    private JournalCartStore open(DataSize segmentSize) {
+        var store = new JournalCartStore(journalDir, segmentSize, Duration.ofHours(1), false, new SimpleMeterRegistry(), clock);
+        store.start();
+        return store;
+    }
+
+    private static void assertSameCarts(CartStore expected, CartStore actual, String... usernames) {
+        for (String username : usernames) {
+            assertEquals(expected.findCartLines(username), actual.findCartLines(username));
+            assertEquals(expected.findSummary(username), actual.findSummary(username));
+            assertEquals(expected.findVersion(username), actual.findVersion(username));
+        }
+    }
+
+    // Flips a payload byte of the last record, as if the process died halfway through writing it.
+    private void corruptLastRecord() throws IOException {
+        var segments = listFiles(".journal");
+        try (var segment = new RandomAccessFile(segments.get(segments.size() - 1).toFile(), "rw")) {
+            long position = 0;
+            long last = -1;
+            for (int length = segment.readInt(); length > 0; length = segment.readInt()) {
+                last = position;
+                position += 8 + length;
+                segment.seek(position);
+            }
+            segment.seek(last + 8 + 1);
+            int value = segment.read();
+            segment.seek(last + 8 + 1);
+            segment.write(value ^ 0xFF);
+        }
+    }
+
+    private long countFiles(String suffix) throws IOException {
+        return listFiles(suffix).size();
+    }
+
+    private List<Path> listFiles(String suffix) throws IOException {
+        try (var files = Files.list(journalDir)) {
+            return files.filter(path -> path.toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    // Moves only when told to, so which carts count as expired never depends on timing.
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.celfocus.hiring.kickstarter.inventory;
+
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemQuantityInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemsInput;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogHolder;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.db.repo.StockRepository;
+import com.celfocus.hiring.kickstarter.db.store.CartStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class InventoryTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private Inventory inventory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @TempDir
+    Path catalogDir;
+
+    @Test
+    void testConcurrentAddsNeverOversell() throws Exception {
+        // Given
+        int stock = inventory.available("SKUTEST18").orElseThrow();
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var added = new AtomicInteger();
+        var futures = new ArrayList<Future<?>>();
+        // When
+        try {
+            for (int t = 0; t < threads; t++) {
+                String username = "flash-sale-user-" + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < stock; i++) {
+                        try {
+                            cartService.addItemToCart(username, new CartItemInput("SKUTEST18"));
+                            added.incrementAndGet();
+                        } catch (OutOfStockException e) {
+                            // expected once the stock runs out
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // Then
+        assertEquals(stock, added.get());
+        assertEquals(0, inventory.available("SKUTEST18").orElseThrow());
+        int held = cartService.getCart("flash-sale-user-0").getItems().get(0).getQuantity();
+        cartService.clearCart("flash-sale-user-0");
+        assertEquals(held, inventory.available("SKUTEST18").orElseThrow());
+    }
+
+    @Test
+    void testRemovingItemsReleasesStock() {
+        // Given
+        int stock = inventory.available("SKUTEST9").orElseThrow();
+        cartService.addItemsToCart("release-user", new CartItemsInput(List.of(new CartItemQuantityInput("SKUTEST9", 3))));
+        cartService.addItemToCart("release-user", new CartItemInput("SKUTEST10"));
+        assertEquals(stock - 3, inventory.available("SKUTEST9").orElseThrow());
+        // When
+        cartService.removeItemFromCart("release-user", "SKUTEST9");
+        cartService.removeItemFromCart("release-user", "SKUTEST9");
+        // Then
+        assertEquals(stock, inventory.available("SKUTEST9").orElseThrow());
+    }
+
+    @Test
+    void testFailedBatchReservesNothing() {
+        // Given
+        int stock = inventory.available("SKUTEST15").orElseThrow();
+        // When
+        assertThrows(OutOfStockException.class, () -> cartService.addItemsToCart("greedy-user", new CartItemsInput(List.of(
+                new CartItemQuantityInput("SKUTEST15", 5),
+                new CartItemQuantityInput("SKUTEST11", 10_000)))));
+        assertThrows(RuntimeException.class, () -> cartService.addItemsToCart("greedy-user", new CartItemsInput(List.of(
+                new CartItemQuantityInput("SKUTEST15", 5),
+                new CartItemQuantityInput("UNKNOWN", 1)))));
+        // Then
+        assertEquals(stock, inventory.available("SKUTEST15").orElseThrow());
+        assertThrows(RuntimeException.class, () -> cartService.getCart("greedy-user"));
+    }
+
+    @Test
+    void testRestartRecoversReservationsFromCheckpointAndCarts() {
+        // Given
+        cartService.addItemsToCart("recovery-user", new CartItemsInput(List.of(new CartItemQuantityInput("SKUTEST16", 4))));
+        inventory.checkpoint();
+        assertEquals(inventory.available("SKUTEST16").orElseThrow(),
+                stockRepository.findById("SKUTEST16").map(s -> s.getOnHand() - s.getReserved()).orElseThrow());
+        cartService.addItemToCart("recovery-user", new CartItemInput("SKUTEST16"));
+        // When
+        var registry = new SimpleMeterRegistry();
+        var restarted = new Inventory(productRepository, stockRepository, cartStore, registry, Duration.ofHours(1), false);
+        restarted.start();
+        restarted.stop();
+        // Then
+        assertEquals(inventory.available("SKUTEST16"), restarted.available("SKUTEST16"));
+        assertTrue(registry.get("inventory.recovery.drift").counter().count() >= 1);
+        assertTrue(restarted.available("UNKNOWN").isEmpty());
+    }
+
+    @Test
+    void testRecoveryIsRetriedOnceTheCatalogLoads() throws Exception {
+        // Given
+        Path catalogFile = Files.writeString(catalogDir.resolve("catalog.json"), "[{\"sku\": \"SKURETRY\", ");
+        // not started: its first load runs, and fails, when recovery first reads the catalog
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, true);
+        var restarted = new Inventory(ProductRepository.create(holder), stockRepository, cartStore, new SimpleMeterRegistry(), Duration.ofHours(1), true);
+        restarted.start();
+        try {
+            assertThrows(IllegalStateException.class, () -> restarted.available("SKURETRY"));
+            assertFalse(restarted.isRecovered());
+            // When
+            Files.writeString(catalogFile, """
+                    [{"sku": "SKURETRY", "name": "Retry", "price": 1, "description": "Retried", "category": "c1", "quantity": 7}]
+                    """);
+            assertTrue(holder.reload());
+            // Then
+            assertEquals(OptionalInt.of(7), restarted.available("SKURETRY"));
+            assertTrue(restarted.isRecovered());
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    void testReleaseBeyondTheReservationIsCounted() throws Exception {
+        // Given
+        Path catalogFile = Files.writeString(catalogDir.resolve("catalog.json"), """
+                [{"sku": "SKUEXCESS", "name": "Excess", "price": 1, "description": "Released twice", "category": "c1", "quantity": 7}]
+                """);
+        var holder = new ProductCatalogHolder(new ObjectMapper(), new SimpleMeterRegistry(), event -> { }, catalogFile.toString(), false, Duration.ZERO, false);
+        var registry = new SimpleMeterRegistry();
+        var standalone = new Inventory(ProductRepository.create(holder), stockRepository, cartStore, registry, Duration.ofHours(1), false);
+        standalone.start();
+        try {
+            standalone.reserve("SKUEXCESS", 2);
+            // When
+            standalone.release("SKUEXCESS", 2);
+            standalone.release("SKUEXCESS", 2);
+            // Then
+            assertEquals(OptionalInt.of(7), standalone.available("SKUEXCESS"));
+            assertEquals(2, registry.get("inventory.release.excess").counter().count());
+        } finally {
+            standalone.stop();
+        }
+    }
+}
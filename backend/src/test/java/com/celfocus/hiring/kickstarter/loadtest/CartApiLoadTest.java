@@ -0,0 +1,291 @@
+package com.celfocus.hiring.kickstarter.loadtest;
+
+import com.celfocus.hiring.kickstarter.KickstarterApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Closed-loop load generator for the four cart endpoints. It boots the application in-process on a random port
+ * against in-memory H2 and keeps {@code loadtest.concurrency} virtual users busy for {@code loadtest.duration}
+ * seconds, each picking a random username, SKU and operation (weighted by {@code loadtest.mix}) per request.
+ * <p>
+ * Unless {@code loadtest.seed=false}, every username first gets a one-item cart, so that GETs measure serving carts
+ * rather than failing on missing ones. The catalog is the bundled one with enough stock for the whole run.
+ * <p>
+ * Opt-in, as it takes a while:
+ * <pre>
+ * mvn test -Dtest=CartApiLoadTest -Dloadtest=true \
+ *     -Dloadtest.users=5000 -Dloadtest.concurrency=1000 -Dloadtest.duration=30 \
+ *     -Dloadtest.mix=get=80,add=15,remove=4,clear=1 -Dloadtest.profiles=virtual-threads
+ * </pre>
+ * Prints throughput, latency percentiles and status counts per endpoint, and the peak number of platform threads
+ * (virtual users do not count towards it). Writes HdrHistogram percentile
+ * distributions (milliseconds) to {@code target/loadtest/<profiles>/<endpoint>.hgrm}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CartApiLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 5_000);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 1_000);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+    private static final String MIX = System.getProperty("loadtest.mix", "get=80,add=15,remove=4,clear=1");
+    private static final String PROFILES = System.getProperty("loadtest.profiles", "");
+    private static final boolean SEED = Boolean.parseBoolean(System.getProperty("loadtest.seed", "true"));
+    private static final int SKUS = 20;
+    private static final int SEED_CONCURRENCY = 64;
+    private static final int STOCK_PER_SKU = 1_000_000;
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    enum Operation {
+        GET, ADD, REMOVE, CLEAR
+    }
+
+    @Test
+    void driveCartApi() throws Exception {
+        var builder = new SpringApplicationBuilder(KickstarterApplication.class)
+                .properties(
+                        "server.error.include-message=always",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN");
+        if (!PROFILES.isBlank()) {
+            builder.profiles(PROFILES.split(","));
+        }
+
+        // arguments, as application.properties overrides the builder's properties for these
+        try (var context = builder.run(
+                "--server.port=0",
+                "--catalog.file=" + writeCatalog().toAbsolutePath(),
+                "--catalog.watch=false");
+             var executor = Executors.newVirtualThreadPerTaskExecutor();
+             var client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(executor)
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .build()) {
+            var baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/carts");
+            var mix = parseMix(MIX);
+            if (SEED) {
+                seed(client, executor, baseUri);
+            }
+            var stats = new EnumMap<Operation, EndpointStats>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new EndpointStats());
+            }
+
+            var threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            long startNanos = System.nanoTime();
+            long recordFromNanos = startNanos + WARMUP.toNanos();
+            long endNanos = recordFromNanos + DURATION.toNanos();
+            var users = new ArrayList<Future<?>>(CONCURRENCY);
+            for (int i = 0; i < CONCURRENCY; i++) {
+                users.add(executor.submit(() -> runUser(client, baseUri, mix, stats, recordFromNanos, endNanos)));
+            }
+            for (var user : users) {
+                user.get();
+            }
+
+            var outputDir = Path.of("target", "loadtest", PROFILES.isBlank() ? "default" : PROFILES.replace(',', '-'));
+            report(stats, outputDir);
+            // virtual users are virtual threads, so this is the server's own footprint
+            System.out.printf("peak platform threads: %d%n", threads.getPeakThreadCount());
+
+            long requests = stats.values().stream().mapToLong(s -> s.histogram.getTotalCount()).sum();
+            long constraintViolations = stats.values().stream().mapToLong(s -> s.constraintViolations.sum()).sum();
+            assertTrue(requests > 0, "no requests completed");
+            assertEquals(0, constraintViolations, "UK_CART_TO_USER violations");
+        }
+    }
+
+    // the bundled catalog, with stock no run can exhaust, so adds measure reserving rather than 409s
+    private static Path writeCatalog() throws IOException {
+        var mapper = new ObjectMapper();
+        var products = mapper.readTree(new ClassPathResource("products.json").getInputStream());
+        products.forEach(product -> ((ObjectNode) product).put("quantity", STOCK_PER_SKU));
+        var catalog = Files.createDirectories(Path.of("target", "loadtest")).resolve("catalog.json");
+        mapper.writeValue(catalog.toFile(), products);
+        return catalog;
+    }
+
+    private static void seed(HttpClient client, ExecutorService executor, URI baseUri) throws Exception {
+        var permits = new Semaphore(SEED_CONCURRENCY);
+        var seeds = new ArrayList<Future<?>>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            var request = request(Operation.ADD, baseUri, "user-" + i, "SKUTEST" + (1 + i % SKUS));
+            seeds.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    HttpResponse<String> response;
+                    // admission control may shed some of the burst
+                    while ((response = client.send(request, HttpResponse.BodyHandlers.ofString())).statusCode() == 429
+                            || response.statusCode() == 503) {
+                        Thread.sleep(10);
+                    }
+                    assertEquals(201, response.statusCode(),
+                            "seeding " + request.headers().firstValue("username").orElseThrow() + ": " + response.body());
+                } finally {
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        for (var seed : seeds) {
+            seed.get();
+        }
+    }
+
+    private static void runUser(HttpClient client, URI baseUri, Map<Operation, Integer> mix,
+                                Map<Operation, EndpointStats> stats, long recordFromNanos, long endNanos) {
+        var random = ThreadLocalRandom.current();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        while (System.nanoTime() < endNanos) {
+            var operation = pick(mix, random.nextInt(totalWeight));
+            var request = request(operation, baseUri, "user-" + random.nextInt(USERS), "SKUTEST" + (1 + random.nextInt(SKUS)));
+
+            long start = System.nanoTime();
+            int status;
+            String body;
+            try {
+                var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                status = response.statusCode();
+                body = response.body();
+            } catch (IOException e) {
+                status = -1;
+                body = String.valueOf(e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long end = System.nanoTime();
+
+            if (start >= recordFromNanos) {
+                stats.get(operation).record(TimeUnit.NANOSECONDS.toMicros(end - start), status, body);
+            }
+        }
+    }
+
+    private static HttpRequest request(Operation operation, URI baseUri, String username, String sku) {
+        var builder = HttpRequest.newBuilder().header("username", username).timeout(Duration.ofSeconds(30));
+        return switch (operation) {
+            case GET -> builder.uri(baseUri).GET().build();
+            case ADD -> builder.uri(URI.create(baseUri + "/items"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"itemId\":\"" + sku + "\"}"))
+                    .build();
+            case REMOVE -> builder.uri(URI.create(baseUri + "/items/" + sku)).DELETE().build();
+            case CLEAR -> builder.uri(baseUri).DELETE().build();
+        };
+    }
+
+    private static Operation pick(Map<Operation, Integer> mix, int roll) {
+        for (var entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (String part : mix.split(",")) {
+            var pair = part.trim().split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static void report(Map<Operation, EndpointStats> stats, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        double seconds = DURATION.toMillis() / 1000.0;
+        var out = System.out;
+        out.printf("%nCart API load test: profiles=[%s] users=%d concurrency=%d duration=%ss mix=%s%n",
+                PROFILES, USERS, CONCURRENCY, DURATION.toSeconds(), MIX);
+        out.printf("%-8s %10s %10s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+        var total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for (var entry : stats.entrySet()) {
+            var histogram = entry.getValue().histogram;
+            total.add(histogram);
+            printRow(out, entry.getKey().name(), histogram, seconds, entry.getValue().describeStatuses());
+            try (var hgrm = new PrintStream(Files.newOutputStream(outputDir.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(hgrm, 1000.0);
+            }
+        }
+        printRow(out, "ALL", total, seconds, "");
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, double seconds, String statuses) {
+        out.printf("%-8s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(95) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0,
+                statuses);
+    }
+
+    private static final class EndpointStats {
+        private final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder constraintViolations = new LongAdder();
+
+        void record(long micros, int status, String body) {
+            histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (status >= 500 && body != null && body.contains("UK_CART_TO_USER")) {
+                constraintViolations.increment();
+            }
+        }
+
+        String describeStatuses() {
+            var counts = new TreeMap<Integer, Long>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts + (constraintViolations.sum() > 0 ? " UK_CART_TO_USER=" + constraintViolations.sum() : "");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.celfocus.hiring.kickstarter.metrics;
+
+import com.celfocus.hiring.kickstarter.db.entity.StockEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class EntityEventCounterTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testLoadsAndFlushesOnTheCurrentThreadAreCounted() {
+        // Given
+        var stock = new StockEntity();
+        stock.setSku("SKUENTITYEVENTS");
+        stock.setOnHand(3);
+        stock.setCheckpointedAt(Instant.now());
+        var write = new TransactionTemplate(transactionManager);
+        var read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        // When
+        EntityEventCounter.start();
+        write.executeWithoutResult(status -> entityManager.persist(stock));
+        read.executeWithoutResult(status -> entityManager.find(StockEntity.class, "SKUENTITYEVENTS"));
+        var counts = EntityEventCounter.stop();
+        write.executeWithoutResult(status -> entityManager.remove(entityManager.find(StockEntity.class, "SKUENTITYEVENTS")));
+        // Then
+        assertEquals(new EntityEventCounter.Counts(1, 1), counts);
+        assertEquals(new EntityEventCounter.Counts(0, 0), EntityEventCounter.stop());
+    }
+}